@@ -0,0 +1,320 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package org.javalite.activeweb;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes a JSON record about every processed request to a log named <code>org.javalite.activeweb.AccessLog</code>, so
+ * that it can be routed separately from other logs. Records have a fixed schema, and are formatted into a reused
+ * buffer without intermediate maps.
+ * <p></p>
+ * In asynchronous mode, a request thread only copies values into a preallocated slot of a ring buffer, and a
+ * background thread formats and writes records. If the buffer is full, records are dropped rather than making
+ * requests wait, and the number of dropped records is logged.
+ * <p></p>
+ * Records of successful requests can be sampled, errors are always logged.
+ *
+ * @author Igor Polevoy
+ */
+final class AccessLog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccessLog.class);
+    private static final long IDLE_PARK_NANOS = 1000000;
+
+    private final double sampleRate;
+    private final Entry[] ring;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long head;
+    private volatile boolean running;
+    private final Thread writer;
+
+    private final ThreadLocal<Entry> syncEntry = new ThreadLocal<Entry>() {
+        @Override
+        protected Entry initialValue() {
+            return new Entry();
+        }
+    };
+    private final ThreadLocal<StringBuilder> syncBuffer = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(512);
+        }
+    };
+
+    /**
+     * @param capacity size of ring buffer, rounded up to a power of two. If 0, records are written on request
+     * threads.
+     * @param sampleRate share of records of successful requests to log, from 0 to 1.
+     */
+    AccessLog(int capacity, double sampleRate) {
+        this.sampleRate = sampleRate;
+        if (capacity > 0) {
+            int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+            ring = new Entry[size];
+            for (int i = 0; i < size; i++) {
+                ring[i] = new Entry();
+            }
+            mask = size - 1;
+            running = true;
+            writer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    drain();
+                }
+            }, "activeweb-access-log");
+            writer.setDaemon(true);
+            writer.start();
+        } else {
+            ring = null;
+            mask = 0;
+            writer = null;
+        }
+    }
+
+    /**
+     * Logs a processed request. Must be called on a thread which processed the request.
+     */
+    void log(HttpServletRequest request, int status, Route route, ControllerResponse controllerResponse,
+             Throwable throwable, long durationMillis) {
+        if (!LOGGER.isInfoEnabled() && !(throwable != null && status >= 500)) {
+            return;
+        }
+        if (sampleRate < 1 && throwable == null && status < 400 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        if (ring == null) {
+            Entry entry = syncEntry.get();
+            entry.fill(request, status, route, controllerResponse, throwable, durationMillis);
+            write(entry, syncBuffer.get());
+            entry.clear();
+            return;
+        }
+
+        long slot;
+        do {
+            slot = tail.get();
+            if (slot - head >= ring.length) {
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!tail.compareAndSet(slot, slot + 1));
+        Entry entry = ring[(int) (slot & mask)];
+        entry.fill(request, status, route, controllerResponse, throwable, durationMillis);
+        entry.published = slot + 1;
+    }
+
+    /**
+     * Writes remaining records and stops background thread.
+     */
+    void close() {
+        if (writer != null) {
+            running = false;
+            LockSupport.unpark(writer);
+            try {
+                writer.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void drain() {
+        StringBuilder buffer = new StringBuilder(512);
+        long next = head;
+        while (true) {
+            Entry entry = ring[(int) (next & mask)];
+            if (entry.published == next + 1) {
+                try {
+                    write(entry, buffer);
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Failed to write access log record", e);
+                }
+                entry.clear();
+                head = ++next;
+            } else {
+                long lost = dropped.getAndSet(0);
+                if (lost > 0) {
+                    LOGGER.warn("Access log buffer is full, dropped " + lost + " records");
+                }
+                if (!running && next == tail.get()) {
+                    return;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private static void write(Entry entry, StringBuilder buffer) {
+        buffer.setLength(0);
+        entry.format(buffer);
+        if (entry.throwable != null && entry.status >= 500) {
+            LOGGER.error(buffer.toString(), entry.throwable);
+        } else {
+            LOGGER.info(buffer.toString());
+        }
+    }
+
+    /**
+     * Appends a JSON string, escaping quotes, backslashes and control characters.
+     */
+    static void appendString(StringBuilder buffer, String value) {
+        buffer.append('"');
+        appendEscaped(buffer, value);
+        buffer.append('"');
+    }
+
+    private static void appendEscaped(StringBuilder buffer, String value) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': buffer.append("\\\""); break;
+                case '\\': buffer.append("\\\\"); break;
+                case '\n': buffer.append("\\n"); break;
+                case '\r': buffer.append("\\r"); break;
+                case '\t': buffer.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        buffer.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        buffer.append(c);
+                    }
+            }
+        }
+    }
+
+    /**
+     * Values of one record. Request values are copied as references, URL and JSON are built when the record is written.
+     */
+    static final class Entry {
+        private volatile long published;
+        private String controller, action, method, scheme, serverName, uri, remoteIp, redirectTarget;
+        private int serverPort, status, headerCount;
+        private long durationMillis;
+        private Throwable throwable;
+        private String[] headers = new String[8]; // name, value, name, value...
+
+        void fill(HttpServletRequest request, int status, Route route, ControllerResponse controllerResponse,
+                  Throwable throwable, long durationMillis) {
+            this.controller = route == null ? "" : route.getControllerClassName();
+            this.action = route == null ? "" : route.getActionName();
+            this.durationMillis = durationMillis;
+            this.method = request.getMethod();
+            this.scheme = request.getScheme();
+            this.serverName = request.getServerName();
+            this.serverPort = request.getServerPort();
+            this.uri = request.getRequestURI();
+            String forwardedFor = request.getHeader("X-Forwarded-For");
+            this.remoteIp = forwardedFor != null && !forwardedFor.trim().isEmpty() ? forwardedFor : request.getRemoteAddr();
+            this.status = status;
+            this.redirectTarget = controllerResponse instanceof RedirectResponse
+                    ? ((RedirectResponse) controllerResponse).redirectValue() : null;
+            this.throwable = throwable;
+            fillHeaders(request);
+        }
+
+        private void fillHeaders(HttpServletRequest request) {
+            headerCount = 0;
+            if (Configuration.logAllHeaders()) {
+                Enumeration<String> names = request.getHeaderNames();
+                while (names.hasMoreElements()) {
+                    String name = names.nextElement();
+                    addHeader(name, request.getHeader(name));
+                }
+            } else {
+                for (String name : Configuration.getLogHeaderNames()) {
+                    String value = request.getHeader(name);
+                    if (value != null) {
+                        addHeader(name, value);
+                    }
+                }
+            }
+        }
+
+        private void addHeader(String name, String value) {
+            if (headerCount * 2 == headers.length) {
+                headers = Arrays.copyOf(headers, headers.length * 2);
+            }
+            headers[headerCount * 2] = name;
+            headers[headerCount * 2 + 1] = value;
+            headerCount++;
+        }
+
+        void format(StringBuilder buffer) {
+            buffer.append("{\"controller\":");
+            appendString(buffer, controller);
+            buffer.append(",\"action\":");
+            appendString(buffer, action);
+            buffer.append(",\"duration_millis\":").append(durationMillis);
+            buffer.append(",\"method\":");
+            appendString(buffer, method);
+            //same as HttpServletRequest.getRequestURL(), without building a string
+            buffer.append(",\"url\":\"");
+            appendEscaped(buffer, scheme);
+            buffer.append("://");
+            appendEscaped(buffer, serverName);
+            if (serverPort > 0 && !(serverPort == 80 && "http".equals(scheme)) && !(serverPort == 443 && "https".equals(scheme))) {
+                buffer.append(':').append(serverPort);
+            }
+            appendEscaped(buffer, uri);
+            buffer.append('"');
+            buffer.append(",\"remote_ip\":");
+            appendString(buffer, remoteIp == null ? "" : remoteIp);
+            buffer.append(",\"status\":").append(status);
+            if (redirectTarget != null) {
+                buffer.append(",\"redirect_target\":");
+                appendString(buffer, redirectTarget);
+            }
+            if (throwable != null) {
+                buffer.append(",\"error\":");
+                appendString(buffer, throwable.getMessage() != null ? throwable.getMessage() : throwable.toString());
+            }
+            if (headerCount > 0) {
+                buffer.append(",\"headers\":{");
+                for (int i = 0; i < headerCount; i++) {
+                    if (i > 0) {
+                        buffer.append(',');
+                    }
+                    appendString(buffer, headers[i * 2]);
+                    buffer.append(':');
+                    appendString(buffer, headers[i * 2 + 1] == null ? "" : headers[i * 2 + 1]);
+                }
+                buffer.append('}');
+            }
+            buffer.append('}');
+        }
+
+        void clear() {
+            controller = action = method = scheme = serverName = uri = remoteIp = redirectTarget = null;
+            throwable = null;
+            Arrays.fill(headers, 0, headerCount * 2, null);
+            headerCount = 0;
+        }
+    }
+}
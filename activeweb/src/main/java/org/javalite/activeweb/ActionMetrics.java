@@ -0,0 +1,53 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package org.javalite.activeweb;
+
+/**
+ * Latency histograms of a controller action, one per {@link RequestPhase}.
+ *
+ * @author Igor Polevoy
+ */
+public final class ActionMetrics {
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[RequestPhase.values().length];
+
+    ActionMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * @param phase phase of request processing
+     * @return durations of the phase in requests to the action.
+     */
+    public LatencyHistogram get(RequestPhase phase) {
+        return histograms[phase.ordinal()];
+    }
+
+    void record(long[] phaseNanos, long totalNanos) {
+        for (int i = 0; i < RequestPhase.TOTAL.ordinal(); i++) {
+            histograms[i].record(phaseNanos[i]);
+        }
+        histograms[RequestPhase.TOTAL.ordinal()].record(totalNanos);
+    }
+
+    void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+}
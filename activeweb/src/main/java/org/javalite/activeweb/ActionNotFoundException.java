@@ -27,4 +27,8 @@ public class ActionNotFoundException extends WebException{
     public ActionNotFoundException(String message) {
         super(message);
     }
+
+    ActionNotFoundException(String message, boolean writableStackTrace) {
+        super(message, null, writableStackTrace);
+    }
 }
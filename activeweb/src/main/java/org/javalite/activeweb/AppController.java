@@ -15,13 +15,10 @@ limitations under the License.
 */
 package org.javalite.activeweb;
 
-import org.javalite.activeweb.annotations.RESTful;
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
 
 
 /**
@@ -94,6 +91,26 @@ public abstract class AppController extends HttpSupport {
     }
 
 
+    /**
+     * Completes current request when a stage completes, without holding a container thread while waiting for it.
+     * The continuation is executed with request context restored, so it can call {@link #view(String, Object)},
+     * {@link #render(String)}, {@link #respond(String)} and other methods, as well as use DB connections opened
+     * by filters. Response is rendered and <code>after()</code> methods of filters are executed after the continuation.
+     * If the stage completes exceptionally, the exception is handled as if it was thrown by the action.
+     * <p></p>
+     * Call this method once, at the end of the action. An action can also simply return a {@link CompletionStage},
+     * which is the same as calling this method without a continuation.
+     * <p></p>
+     * If the container does not support asynchronous requests for ActiveWeb filter (<code>async-supported</code> is
+     * not set in <code>web.xml</code>), current thread waits for the stage.
+     *
+     * @param stage stage of work in progress, such as a call to a remote service.
+     * @param continuation code to execute with a result of the stage, can be null.
+     */
+    protected <T> void async(CompletionStage<T> stage, Consumer<? super T> continuation) {
+        RequestContext.getRequestVo().setAsyncAction(new AsyncAction(stage, continuation));
+    }
+
     protected String servletPath() {
         return RequestContext.getHttpRequest().getServletPath();
     }
@@ -117,6 +134,35 @@ public abstract class AppController extends HttpSupport {
         return Configuration.getDefaultLayout();
     }
 
+    /**
+     * Override to return true to send a head of a layout to a browser before an action is executed, so that
+     * the browser can start loading styles and scripts while the action works. The head is the part of the layout
+     * before the <code>&lt;@flush/&gt;</code> tag. It is rendered after <code>before()</code> filters, for GET
+     * requests only, and has access to request data, but not to values of the action or content of a page.
+     * If the layout has no such tag, or its head cannot be rendered, the page is rendered as usual.
+     * <p></p>
+     * Once the head is sent, response headers cannot be changed: the action must not redirect, and status
+     * remains 200. The page is rendered in the rest of the same layout; if the action fails, the error page is
+     * rendered there instead.
+     *
+     * @return false by default.
+     */
+    protected boolean flushLayoutHead() {
+        return false;
+    }
+
+    /**
+     * Override to return true to send <code>ETag</code> header with pages rendered by this controller, and to
+     * answer GET requests with status 304 and no body when client already has the same page. The page is still
+     * rendered to compute the tag. To skip rendering too, call {@link #notModified(String)} in an action.
+     * Applies to pages with status 200, and not to layouts flushed with {@link #flushLayoutHead()}.
+     *
+     * @return false by default.
+     */
+    protected boolean generateETags() {
+        return false;
+    }
+
     /**
      * Returns hardcoded value "text/html". Override this method to set default content type to a different value across
      * all actions in controller and its subclasses. This is a convenient method for building REST webservices. You can set
@@ -152,25 +198,7 @@ public abstract class AppController extends HttpSupport {
     }
 
     protected List<HttpMethod> allowedActions(String actionMethodName) {
-        try {
-            Method method = getClass().getMethod(actionMethodName);
-            Annotation[] annotations = method.getAnnotations();
-
-            //default behavior: GET method!
-            if (annotations.length == 0) {
-                return Collections.singletonList(HttpMethod.GET);
-            } else {
-                List<HttpMethod> res = new ArrayList<>();
-                for (Annotation annotation : annotations) {
-                    try {
-                        res.add(HttpMethod.valueOf(annotation.annotationType().getSimpleName()));
-                    } catch (IllegalArgumentException ignore) {} // we do not know this annotation
-                }
-                return res;
-            }
-        } catch (NoSuchMethodException e) {
-            throw new ActionNotFoundException(e);
-        }
+        return ControllerMetadata.of(getClass()).getHttpMethods(actionMethodName);
     }
 
     private boolean restfulActionSupportsHttpMethod(String action, HttpMethod httpMethod) {
@@ -204,10 +232,10 @@ public abstract class AppController extends HttpSupport {
      * @return true if this controller is restful, false if not.
      */
     public boolean restful() {
-        return getClass().getAnnotation(RESTful.class) != null;
+        return ControllerMetadata.of(getClass()).isRestful();
     }
 
     public static <T extends AppController> boolean restful(Class<T> controllerClass){
-        return controllerClass.getAnnotation(RESTful.class) != null;
+        return ControllerMetadata.of(controllerClass).isRestful();
     }
 }
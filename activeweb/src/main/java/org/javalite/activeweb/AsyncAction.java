@@ -0,0 +1,96 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package org.javalite.activeweb;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Action which completes later, see {@link AppController#async(CompletionStage, Consumer)}. The request is
+ * resumed when the stage completes: a continuation is executed, and the response is rendered.
+ *
+ * @author Igor Polevoy
+ */
+class AsyncAction {
+
+    private final CompletionStage<?> stage;
+    private final Consumer<Object> continuation;
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile Object result;
+    private volatile Throwable failure;
+
+    @SuppressWarnings("unchecked")
+    <T> AsyncAction(CompletionStage<T> stage, Consumer<? super T> continuation) {
+        this.stage = stage;
+        this.continuation = (Consumer<Object>) continuation;
+    }
+
+    /**
+     * Executes a callback when the stage completes, on a thread that completes it. The callback is executed on
+     * current thread if the stage is already complete. The callback must only hand work over to another thread.
+     *
+     * @param callback callback to execute.
+     */
+    void onComplete(final Runnable callback) {
+        stage.whenComplete(new BiConsumer<Object, Throwable>() {
+            @Override
+            public void accept(Object value, Throwable throwable) {
+                result = value;
+                failure = throwable;
+                done.countDown();
+                if (callback != null) {
+                    callback.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * Blocks current thread until the stage completes. Used when container does not support asynchronous requests.
+     */
+    void await() throws InterruptedException {
+        onComplete(null);
+        done.await();
+    }
+
+    /**
+     * Executes continuation with a result of the stage. Must be called after the stage completed and request
+     * context was restored.
+     *
+     * @throws RuntimeException if the stage completed exceptionally, or if continuation failed.
+     */
+    void resume() {
+        if (failure != null) {
+            Throwable cause = failure;
+            while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new ControllerException(cause);
+        }
+        if (continuation != null) {
+            continuation.accept(result);
+        }
+    }
+}
@@ -27,4 +27,12 @@ public class ClassLoadException extends Exception{
     public ClassLoadException(Throwable cause) {
         super(cause);   
     }
+
+    /**
+     * @param cause cause, message of this exception is the same as with {@link #ClassLoadException(Throwable)}.
+     * @param writableStackTrace false to skip filling in a stack trace, for exceptions which are frequent and expected.
+     */
+    ClassLoadException(Throwable cause, boolean writableStackTrace) {
+        super(cause.toString(), cause, false, writableStackTrace);
+    }
 }
@@ -40,12 +40,28 @@ public class Configuration {
         return controllerPackages;
     }
 
+    /**
+     * @return controller packages arranged for lookup by URI, null if filter config was not set yet.
+     */
+    static ControllerPackageTrie getControllerPackageTrie() {
+        return controllerPackageTrie;
+    }
+
+    /**
+     * @return registry of controllers discovered at startup, null if filter config was not set yet.
+     */
+    static ControllerRegistry getControllerRegistry() {
+        return controllerRegistry;
+    }
+
     enum Params {
         templateManager, bootstrap, defaultLayout, targetDir, rootPackage, dbconfig, controllerConfig, rollback,
         freeMarkerConfig, route_config, maxUploadSize
     }
 
     private static List<String> logHeaders = new ArrayList<>();
+    private static volatile String[] logHeaderNames = new String[0];
+    private static volatile boolean logAllHeaders;
     private static Properties props;
     private static TemplateManager templateManager;
 
@@ -54,15 +70,22 @@ public class Configuration {
     private static boolean activeReload = !blank(System.getProperty("active_reload")) && System.getProperty("active_reload").equals("true");
     private static AbstractFreeMarkerConfig freeMarkerConfig;
     private static boolean useDefaultLayoutForErrors = true;
+    private static volatile boolean productionErrors;
+    private static volatile int maxErrorPagesPerSecond = 20;
+    private static final PageCache pageCache = new PageCache();
 
     // these are not full package names, just parti al package names between "app.controllers"
     // and simple name of controller class
     private static List<String> controllerPackages;
+    private static ControllerPackageTrie controllerPackageTrie;
+    private static ControllerRegistry controllerRegistry;
     private static List<HttpSupportFilter> filters  = new ArrayList<>();
 
     private static boolean filtersInjected = false;
 
-    private static Map<HttpSupport, FilterMetadata> filterMetadataMap = new HashMap<>();
+    //copied on write, filter metadata is added while the app is configured and read by all requests
+    private static volatile Map<HttpSupport, FilterMetadata<?>> filterMetadataMap = Collections.emptyMap();
+    private static volatile FilterChains filterChains;
 
     static{
         try {
@@ -137,6 +160,56 @@ public class Configuration {
         return useDefaultLayoutForErrors;
     }
 
+    /**
+     * Switches system error pages to a mode suitable for production, where scans of random URIs are frequent:
+     * <ul>
+     *     <li>page <code>/system/404</code> is rendered once per layout and then served from memory. It does not
+     *     have access to a message, stack trace, session or request parameters</li>
+     *     <li>page <code>/system/error</code> is rendered at most {@link #setMaxErrorPagesPerSecond(int)} times per
+     *     second, a static page is sent for other errors</li>
+     *     <li>AJAX requests get a short text instead of a stack trace</li>
+     * </ul>
+     * All errors are still logged. Default is <code>false</code>.
+     *
+     * @param productionErrors true to switch on production mode of error pages.
+     */
+    public static void setProductionErrors(boolean productionErrors) {
+        Configuration.productionErrors = productionErrors;
+    }
+
+    static boolean productionErrors() {
+        return productionErrors;
+    }
+
+    /**
+     * Sets maximum number of <code>/system/error</code> pages rendered per second in production error mode, see
+     * {@link #setProductionErrors(boolean)}. Default is 20.
+     *
+     * @param maxErrorPagesPerSecond maximum number of error pages per second, 0 to always send a static page.
+     */
+    public static void setMaxErrorPagesPerSecond(int maxErrorPagesPerSecond) {
+        Configuration.maxErrorPagesPerSecond = maxErrorPagesPerSecond;
+    }
+
+    static int getMaxErrorPagesPerSecond() {
+        return maxErrorPagesPerSecond;
+    }
+
+    /**
+     * Sets how much memory is used by responses of actions marked with
+     * {@link org.javalite.activeweb.annotations.CachePage}. Least recently used responses are removed first.
+     * Default is 32 MB.
+     *
+     * @param maxBytes size in bytes, 0 to not keep responses.
+     */
+    public static void setPageCacheSize(long maxBytes) {
+        pageCache.setMaxBytes(maxBytes);
+    }
+
+    static PageCache getPageCache() {
+        return pageCache;
+    }
+
     public static boolean logRequestParams() {
         String logRequest = System.getProperty("activeweb.log.request");
         return logRequest != null && logRequest.equals("true");
@@ -286,10 +359,16 @@ public class Configuration {
 
     protected static void setFilters(List<HttpSupportFilter> allFilters) {
         filters = allFilters;
+        filterChains = null;
     }
 
     protected static void setFilterConfig(FilterConfig config) {
-        controllerPackages = ControllerPackageLocator.locateControllerPackages(config);
+        List<String> packages = new ArrayList<>();
+        List<String> controllerClasses = new ArrayList<>();
+        ControllerPackageLocator.locateControllers(config, packages, controllerClasses);
+        controllerPackages = packages;
+        controllerPackageTrie = new ControllerPackageTrie(packages);
+        controllerRegistry = new ControllerRegistry(controllerClasses);
     }
 
     protected static List<HttpSupportFilter> getFilters() {
@@ -313,17 +392,43 @@ public class Configuration {
         }
     }
 
-    //no need to synchronize here, since FilterConfig objects will be created
-    //by a single thread when the app is bootstrapped.
     static FilterMetadata getFilterMetadata(HttpSupportFilter filter){
         FilterMetadata config = filterMetadataMap.get(filter);
         if(config == null){
-            config = new FilterMetadata();
-            filterMetadataMap.put(filter, config);
+            synchronized (Configuration.class){
+                config = filterMetadataMap.get(filter);
+                if(config == null){
+                    config = new FilterMetadata();
+                    Map<HttpSupport, FilterMetadata<?>> map = new IdentityHashMap<>(filterMetadataMap);
+                    map.put(filter, config);
+                    filterMetadataMap = Collections.unmodifiableMap(map);
+                }
+            }
         }
         return config;
     }
 
+    /**
+     * Returns filters which apply to the current route, resolved once for each controller action.
+     *
+     * @param route current route
+     * @return filters in order of definition. Do not modify the array.
+     */
+    static HttpSupportFilter[] getFilterChain(Route route){
+        FilterChains chains = filterChains;
+        if(chains == null){
+            filterChains = chains = new FilterChains(filters);
+        }
+        return chains.get(route);
+    }
+
+    /**
+     * Must be called when filters or their configuration change, so that filter chains are resolved again.
+     */
+    static void resetFilterChains(){
+        filterChains = null;
+    }
+
     static void setInjector(Injector injector) {
         Configuration.injector = injector;
     }
@@ -334,11 +439,13 @@ public class Configuration {
 
     static void addFilter(HttpSupportFilter filter) {
         filters.add(filter);
+        filterChains = null;
     }
 
     static void resetFilters() {
         filters = new ArrayList<>();
-        filterMetadataMap = new HashMap<>();
+        filterMetadataMap = Collections.emptyMap();
+        filterChains = null;
     }
 
     /**
@@ -349,10 +456,27 @@ public class Configuration {
      */
     public static void logHeaders(String... headerNames) {
         logHeaders = list(headerNames);
+        logAllHeaders = headerNames.length > 0 && "*".equals(headerNames[0]);
+        Set<String> names = new LinkedHashSet<>(logHeaders);
+        logHeaderNames = logAllHeaders ? new String[0] : names.toArray(new String[names.size()]);
     }
 
     protected static List<String> getLogHeaders(){
         return logHeaders;
     }
 
+    /**
+     * @return names of headers to log, without duplicates.
+     */
+    static String[] getLogHeaderNames() {
+        return logHeaderNames;
+    }
+
+    /**
+     * @return true if all request headers should be logged.
+     */
+    static boolean logAllHeaders() {
+        return logAllHeaders;
+    }
+
 }
@@ -28,6 +28,35 @@ public class ControllerFactory {
         return DynamicClassFactory.createInstance(controllerClassName, AppController.class);
     }
 
+    /**
+     * Creates a controller for a name and package suffix taken from URI. Controllers are found in a registry built
+     * at startup, unless in active reload mode, where they are recompiled and loaded for every request.
+     *
+     * @param controllerName name of controller, such as "greeting" or "user-profile".
+     * @param packageSuffix package suffix in between "app.controllers" and controller class, null if none.
+     * @return new instance of controller.
+     */
+    static AppController createController(String controllerName, String packageSuffix) throws ClassLoadException {
+        ControllerRegistry registry = Configuration.getControllerRegistry();
+        if (registry == null || Configuration.activeReload()) {
+            return createControllerInstance(getControllerClassName(controllerName, packageSuffix));
+        }
+        return registry.createController(controllerName, packageSuffix);
+    }
+
+    /**
+     * Finds a controller class for a name and package suffix taken from URI, see
+     * {@link #createController(String, String)}.
+     */
+    @SuppressWarnings("unchecked")
+    static Class<? extends AppController> getControllerClass(String controllerName, String packageSuffix) throws ClassLoadException {
+        ControllerRegistry registry = Configuration.getControllerRegistry();
+        if (registry == null || Configuration.activeReload()) {
+            return DynamicClassFactory.getCompiledClass(getControllerClassName(controllerName, packageSuffix));
+        }
+        return registry.getControllerClass(controllerName, packageSuffix);
+    }
+
     static String getControllerClassName(String controllerName, String packageSuffix) {
         String name = controllerName.replace('-', '_');
         String temp = Configuration.getRootPackage() + ".controllers";
@@ -0,0 +1,316 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package org.javalite.activeweb;
+
+import com.google.inject.Injector;
+import org.javalite.activeweb.annotations.CachePage;
+import org.javalite.activeweb.annotations.RESTful;
+import org.javalite.activeweb.annotations.SingletonController;
+import org.javalite.common.Inflector;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.javalite.common.Util.join;
+
+/**
+ * Information about a controller class which does not change while the application is running: actions and
+ * HTTP methods they accept, method handles to invoke actions, value of the <code>Allow</code> header, RESTful flag
+ * and a path used for templates. It also keeps a shared instance of a controller marked with
+ * {@link SingletonController}.
+ * It is computed once per controller class. In active reload mode controller classes are reloaded on every request,
+ * and a newly loaded class replaces metadata of the previous one.
+ *
+ * @author Igor Polevoy
+ */
+final class ControllerMetadata {
+
+    private static final Map<String, ControllerMetadata> metadata = new ConcurrentHashMap<>();
+
+    private final Class<? extends AppController> controllerClass;
+    private final boolean restful, singleton;
+    private final String controllerPath;
+    private final Map<String, Action> actions = new HashMap<>();
+    private final Map<String, String> actionMethodNames = new HashMap<>();
+    private volatile Shared shared;
+
+    private ControllerMetadata(Class<? extends AppController> controllerClass) {
+        this.controllerClass = controllerClass;
+        this.restful = controllerClass.getAnnotation(RESTful.class) != null;
+        this.singleton = controllerClass.getAnnotation(SingletonController.class) != null;
+
+        String path;
+        try {
+            path = Router.generateControllerPath(controllerClass);
+        } catch (ControllerException e) {
+            path = null; // will be thrown to caller of getControllerPath()
+        }
+        this.controllerPath = path;
+
+        for (Method method : controllerClass.getMethods()) {
+            if (method.getParameterTypes().length == 0) {
+                Action existing = actions.get(method.getName());
+                //a method with covariant return type has a bridge method with the same name
+                if (existing == null || existing.method.isBridge()) {
+                    actions.put(method.getName(), new Action(method));
+                }
+            }
+        }
+        for (String methodName : actions.keySet()) {
+            String underscored = Inflector.underscore(methodName);
+            if (actionMethodName(underscored).equals(methodName)) {
+                actionMethodNames.put(underscored, methodName);
+                actionMethodNames.put(underscored.replace('_', '-'), methodName);
+            }
+        }
+    }
+
+    /**
+     * Returns metadata of a controller class, computing it on first call.
+     *
+     * @param controllerClass class of controller
+     * @return metadata of the class
+     */
+    static ControllerMetadata of(Class<? extends AppController> controllerClass) {
+        ControllerMetadata controllerMetadata = metadata.get(controllerClass.getName());
+        if (controllerMetadata == null || controllerMetadata.controllerClass != controllerClass) {
+            controllerMetadata = new ControllerMetadata(controllerClass);
+            metadata.put(controllerClass.getName(), controllerMetadata);
+        }
+        return controllerMetadata;
+    }
+
+    private static String actionMethodName(String actionName) {
+        return Inflector.camelize(actionName.replace('-', '_'), false);
+    }
+
+    boolean isRestful() {
+        return restful;
+    }
+
+    boolean isSingleton() {
+        return singleton;
+    }
+
+    /**
+     * Returns a single instance of a controller marked with {@link SingletonController}. The instance is created and
+     * injected on first call, and again if injector of application is replaced.
+     *
+     * @return shared instance of controller.
+     * @throws ControllerException if controller declares mutable instance fields.
+     */
+    AppController getSingleton() throws ReflectiveOperationException {
+        Injector injector = Configuration.getInjector();
+        Shared current = shared;
+        if (current == null || current.injector != injector) {
+            synchronized (this) {
+                current = shared;
+                if (current == null || current.injector != injector) {
+                    checkFields();
+                    AppController controller = controllerClass.getConstructor().newInstance();
+                    if (injector != null) {
+                        injector.injectMembers(controller);
+                    }
+                    shared = current = new Shared(controller, injector);
+                }
+            }
+        }
+        return current.controller;
+    }
+
+    /**
+     * @param controller instance of controller
+     * @return true if this is a shared instance returned by {@link #getSingleton()}, it is already injected.
+     */
+    boolean isSingleton(AppController controller) {
+        Shared current = shared;
+        return current != null && current.controller == controller;
+    }
+
+    private void checkFields() {
+        for (Class<?> c = controllerClass; c != AppController.class && c != null; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers) || field.isSynthetic() || injected(field)) {
+                    continue;
+                }
+                throw new ControllerException("Controller " + controllerClass.getName() + " is annotated with @"
+                        + SingletonController.class.getSimpleName() + " and cannot have mutable instance field '"
+                        + field.getName() + "', because the instance is shared by all requests. Make the field final "
+                        + "or keep request data in a local variable.");
+            }
+        }
+    }
+
+    private static boolean injected(Field field) {
+        for (Annotation annotation : field.getAnnotations()) {
+            String name = annotation.annotationType().getName();
+            if (name.equals("com.google.inject.Inject") || name.equals("javax.inject.Inject")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return path of controller, see {@link Router#getControllerPath(Class)}.
+     */
+    String getControllerPath() {
+        return controllerPath != null ? controllerPath : Router.generateControllerPath(controllerClass);
+    }
+
+    /**
+     * Converts action name from URI to a name of a method, such as "new_form" to "newForm".
+     *
+     * @param actionName name of action as it appears in URI.
+     * @return name of method.
+     */
+    String getActionMethodName(String actionName) {
+        String methodName = actionMethodNames.get(actionName);
+        return methodName != null ? methodName : actionMethodName(actionName);
+    }
+
+    /**
+     * @param actionMethodName name of action method.
+     * @return public method with no arguments, null if controller does not have such method.
+     */
+    Method getActionMethod(String actionMethodName) {
+        Action action = actions.get(actionMethodName);
+        return action == null ? null : action.method;
+    }
+
+    /**
+     * Invokes an action on a controller with a method handle prepared when metadata was computed. Exceptions thrown
+     * by the action are not wrapped.
+     *
+     * @param controller controller of this class
+     * @param actionMethodName name of action method, declared in a subclass of {@link AppController}.
+     * @return value returned by action, null for <code>void</code> actions.
+     * @throws ActionNotFoundException if there is no such action.
+     * @throws IllegalAccessException if method cannot be accessed, for instance if controller class is not public.
+     */
+    Object invokeAction(AppController controller, String actionMethodName) throws Throwable {
+        Action action = getAction(actionMethodName);
+        if (action.accessError != null) {
+            throw action.accessError;
+        } else if (action.handle == null) {
+            throw new ActionNotFoundException("Cannot execute action '" + actionMethodName + "' on controller: " + controller);
+        }
+        return (Object) action.handle.invokeExact(controller);
+    }
+
+    /**
+     * Returns HTTP methods an action supports, according to its annotations. Actions without annotations support GET.
+     *
+     * @param actionMethodName name of action method.
+     * @return list of HTTP methods.
+     * @throws ActionNotFoundException if there is no such action.
+     */
+    List<HttpMethod> getHttpMethods(String actionMethodName) {
+        return getAction(actionMethodName).httpMethods;
+    }
+
+    /**
+     * @param actionMethodName name of action method.
+     * @return value of <code>Allow</code> header for the action.
+     * @throws ActionNotFoundException if there is no such action.
+     */
+    String getAllowHeader(String actionMethodName) {
+        return getAction(actionMethodName).allowHeader;
+    }
+
+    /**
+     * @param actionMethodName name of action method.
+     * @return annotation of action, null if action is not cached or there is no such action.
+     */
+    CachePage getCachePage(String actionMethodName) {
+        Action action = actions.get(actionMethodName);
+        return action == null ? null : action.cachePage;
+    }
+
+    private Action getAction(String actionMethodName) {
+        Action action = actions.get(actionMethodName);
+        if (action == null) {
+            //same message as with a NoSuchMethodException as a cause, without filling two stack traces per unknown URI
+            //in production
+            String method = controllerClass.getName() + "." + actionMethodName + "()";
+            throw new ActionNotFoundException(NoSuchMethodException.class.getName() + ": " + method + "; " + method,
+                    !Configuration.productionErrors());
+        }
+        return action;
+    }
+
+    private static class Shared {
+        private final AppController controller;
+        private final Injector injector;
+
+        Shared(AppController controller, Injector injector) {
+            this.controller = controller;
+            this.injector = injector;
+        }
+    }
+
+    private static class Action {
+        private static final MethodType ACTION_TYPE = MethodType.methodType(Object.class, AppController.class);
+
+        private final Method method;
+        private final List<HttpMethod> httpMethods;
+        private final String allowHeader;
+        private final MethodHandle handle;
+        private final IllegalAccessException accessError;
+        private final CachePage cachePage;
+
+        Action(Method method) {
+            this.method = method;
+
+            MethodHandle methodHandle = null;
+            IllegalAccessException error = null;
+            if (AppController.class.isAssignableFrom(method.getDeclaringClass())) {
+                try {
+                    //void actions return null
+                    methodHandle = MethodHandles.publicLookup().unreflect(method).asType(ACTION_TYPE);
+                } catch (IllegalAccessException e) {
+                    error = e;
+                }
+            }
+            this.handle = methodHandle;
+            this.accessError = error;
+
+            cachePage = method.getAnnotation(CachePage.class);
+            Annotation[] annotations = method.getAnnotations();
+            //default behavior: GET method!
+            if (annotations.length == 0 || (annotations.length == 1 && cachePage != null)) {
+                httpMethods = Collections.singletonList(HttpMethod.GET);
+            } else {
+                List<HttpMethod> res = new ArrayList<>();
+                for (Annotation annotation : annotations) {
+                    try {
+                        res.add(HttpMethod.valueOf(annotation.annotationType().getSimpleName()));
+                    } catch (IllegalArgumentException ignore) {} // we do not know this annotation
+                }
+                httpMethods = Collections.unmodifiableList(res);
+            }
+            allowHeader = join(httpMethods, ", ");
+        }
+    }
+}
@@ -41,24 +41,37 @@ class ControllerPackageLocator {
     private ControllerPackageLocator() {}
 
     public static List<String> locateControllerPackages(FilterConfig config) {
-        String controllerPath = System.getProperty("file.separator") + Configuration.getRootPackage() + System.getProperty("file.separator") + "controllers";
         List<String> controllerPackages = new ArrayList<>();
+        locateControllers(config, controllerPackages, new ArrayList<String>());
+        return controllerPackages;
+    }
+
+    /**
+     * Discovers controller packages and controller classes in a single pass over classpath.
+     *
+     * @param config filter config
+     * @param controllerPackages list to add package suffixes to, such as "admin" or "admin.printers".
+     * @param controllerClasses list to add fully qualified names of classes ending with "Controller" to.
+     */
+    static void locateControllers(FilterConfig config, List<String> controllerPackages, List<String> controllerClasses) {
+        String controllerPath = System.getProperty("file.separator") + Configuration.getRootPackage() + System.getProperty("file.separator") + "controllers";
+        String controllerPackage = Configuration.getRootPackage() + ".controllers";
         List<URL> urls = getUrls(config);
         for (URL url : urls) {
             File f = new File(url.getFile());
             if (f.isDirectory()) {
                 try {
-                    discoverInDirectory(f.getCanonicalPath() + controllerPath, controllerPackages, "");
+                    discoverInDirectory(f.getCanonicalPath() + controllerPath, controllerPackages, controllerClasses, controllerPackage, "");
                 } catch (Exception ignore) {
                 }
             } else {//assuming jar file
-                discoverInJar(f, controllerPackages);
+                discoverInJar(f, controllerPackages, controllerClasses);
             }
         }
-        return controllerPackages;
     }
 
-    private static void discoverInDirectory(String directoryPath, List<String> controllerPackages, String parent) {
+    private static void discoverInDirectory(String directoryPath, List<String> controllerPackages, List<String> controllerClasses,
+                                            String controllerPackage, String parent) {
         try {
             File directory = new File(directoryPath);
             if (directory.exists()) {
@@ -67,7 +80,11 @@ class ControllerPackageLocator {
                 for (File file : files) {
                     if (file.isDirectory()) {
                         controllerPackages.add(parent + (parent.equals("") ? "" : ".") + file.getName());
-                        discoverInDirectory(file.getCanonicalPath(), controllerPackages, parent + (parent.equals("") ? "" : ".") + file.getName());
+                        discoverInDirectory(file.getCanonicalPath(), controllerPackages, controllerClasses, controllerPackage,
+                                parent + (parent.equals("") ? "" : ".") + file.getName());
+                    } else if (isControllerClass(file.getName())) {
+                        controllerClasses.add(controllerPackage + (parent.equals("") ? "" : "." + parent) + "."
+                                + file.getName().substring(0, file.getName().length() - ".class".length()));
                     }
                 }
             }
@@ -75,6 +92,10 @@ class ControllerPackageLocator {
     }
 
     protected static void discoverInJar(File file, List<String> controllerPackages) {
+        discoverInJar(file, controllerPackages, new ArrayList<String>());
+    }
+
+    private static void discoverInJar(File file, List<String> controllerPackages, List<String> controllerClasses) {
         String base = "app/controllers/";
         try {
             JarFile jarFile = new JarFile(file);
@@ -86,12 +107,19 @@ class ControllerPackageLocator {
                 String path = jarEntry.toString();
                 if (path.startsWith(base) && !path.endsWith(".class") && !path.equals(base)) {
                     controllerPackages.add(path.substring(base.length(), path.length() - 1).replace("/", "."));
+                } else if (path.startsWith(base) && isControllerClass(path.substring(path.lastIndexOf('/') + 1))) {
+                    controllerClasses.add(path.substring(0, path.length() - ".class".length()).replace("/", "."));
                 }
             }
         } catch (Exception ignore) {
         }
     }
 
+    private static boolean isControllerClass(String fileName) {
+        return fileName.endsWith("Controller.class") && fileName.length() > "Controller.class".length()
+                && fileName.indexOf('$') == -1;
+    }
+
     private static List<URL> getUrls(FilterConfig config) {
         URL[] urls;
         try {
@@ -0,0 +1,159 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package org.javalite.activeweb;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Controller packages under "app.controllers" arranged in a tree of package names, such as "admin" -&gt; "special".
+ * Leading segments of a request URI are compared to package names in place, with periods in URI matching
+ * underscores in a package name ("/v1.0/service" is in package "v1_0"). Only whole segments match, and the
+ * deepest package wins.
+ *
+ * @author Igor Polevoy
+ */
+class ControllerPackageTrie {
+
+    private final Node root = new Node(null);
+
+    /**
+     * @param packages package suffixes as discovered by {@link ControllerPackageLocator}, such as "admin.special".
+     */
+    ControllerPackageTrie(List<String> packages) {
+        for (String pack : packages) {
+            Node node = root;
+            for (String name : pack.split("\\.")) {
+                node = node.child(name);
+            }
+            node.packageSuffix = pack;
+        }
+    }
+
+    /**
+     * Finds a package suffix and controller name of a request URI, in one pass over the URI.
+     *
+     * @param uri request URI, such as "/admin/special/db/show/1".
+     * @return package suffix and controller name. Package suffix is null if URI does not start with a package, and
+     * controller name is empty if URI ends with a package.
+     */
+    ControllerPath find(String uri) {
+        int length = uri.length();
+        int start = uri.startsWith("/") ? 1 : 0;
+
+        Node node = root;
+        String packageSuffix = null;
+        int controllerStart = start;
+        for (int segmentStart = start; segmentStart < length; ) {
+            int segmentEnd = uri.indexOf('/', segmentStart);
+            if (segmentEnd == -1) {
+                segmentEnd = length;
+            }
+            node = node.find(uri, segmentStart, segmentEnd);
+            if (node == null) {
+                break;
+            }
+            if (node.packageSuffix != null) {
+                packageSuffix = node.packageSuffix;
+                controllerStart = segmentEnd + 1;
+            }
+            segmentStart = segmentEnd + 1;
+        }
+
+        if (controllerStart >= length) {
+            return new ControllerPath(packageSuffix, "");
+        }
+        int controllerEnd = uri.indexOf('/', controllerStart);
+        if (controllerEnd == -1) {
+            controllerEnd = length;
+        }
+        if (packageSuffix != null) {
+            //inside a package, controller name also ends with a period, as it always did
+            int period = uri.indexOf('.', controllerStart);
+            if (period != -1 && period < controllerEnd) {
+                controllerEnd = period;
+            }
+        }
+        return new ControllerPath(packageSuffix, uri.substring(controllerStart, controllerEnd));
+    }
+
+    /**
+     * Package suffix and controller name found in a URI.
+     */
+    static final class ControllerPath {
+        private final String packageSuffix, controllerName;
+
+        ControllerPath(String packageSuffix, String controllerName) {
+            this.packageSuffix = packageSuffix;
+            this.controllerName = controllerName;
+        }
+
+        String getPackageSuffix() {
+            return packageSuffix;
+        }
+
+        String getControllerName() {
+            return controllerName;
+        }
+    }
+
+    private static class Node {
+        private final String name;
+        private String packageSuffix;
+        private Node[] children = new Node[0];
+
+        Node(String name) {
+            this.name = name;
+        }
+
+        Node child(String name) {
+            for (Node child : children) {
+                if (child.name.equals(name)) {
+                    return child;
+                }
+            }
+            Node child = new Node(name);
+            children = Arrays.copyOf(children, children.length + 1);
+            children[children.length - 1] = child;
+            return child;
+        }
+
+        /**
+         * Finds a child whose name matches a segment of URI, without extracting the segment.
+         */
+        Node find(String uri, int start, int end) {
+            for (Node child : children) {
+                if (matches(child.name, uri, start, end)) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        private static boolean matches(String name, String uri, int start, int end) {
+            if (name.length() != end - start) {
+                return false;
+            }
+            for (int i = 0; i < name.length(); i++) {
+                char c = uri.charAt(start + i);
+                if ((c == '.' ? '_' : c) != name.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
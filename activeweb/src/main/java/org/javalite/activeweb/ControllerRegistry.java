@@ -0,0 +1,195 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package org.javalite.activeweb;
+
+import org.javalite.common.Inflector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Constructor;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps controller names and package suffixes taken from a URI to controller classes and their constructors.
+ * The registry is populated at startup with controllers found by {@link ControllerPackageLocator}. Controllers
+ * that were not discovered are loaded on first request, and names that do not map to a controller are remembered,
+ * so that repeated requests to unknown URIs do not hit the class loader.
+ * <p></p>
+ * The registry is not used in active reload mode, where controllers are recompiled and reloaded on every request.
+ *
+ * @author Igor Polevoy
+ */
+class ControllerRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ControllerRegistry.class);
+
+    /**
+     * Maximum number of unknown names remembered, to protect memory from scans of random URIs.
+     */
+    static final int MAX_MISSING = 10000;
+
+    private static final String NO_PACKAGE = "";
+
+    private final ConcurrentHashMap<String, Map<String, Entry>> packages = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Map<String, ClassNotFoundException>> missing = new ConcurrentHashMap<>();
+    private final String basePackage = Configuration.getRootPackage() + ".controllers";
+    private int missingCount;
+
+    /**
+     * @param controllerClassNames fully qualified names of controller classes discovered on classpath.
+     */
+    ControllerRegistry(List<String> controllerClassNames) {
+        for (String className : controllerClassNames) {
+            register(className);
+        }
+    }
+
+    private void register(String className) {
+        if (!className.startsWith(basePackage + ".")) {
+            return;
+        }
+        String simpleName = className.substring(className.lastIndexOf('.') + 1);
+        String packageSuffix = className.lastIndexOf('.') == basePackage.length() ? null
+                : className.substring(basePackage.length() + 1, className.lastIndexOf('.'));
+        String controllerName = Inflector.underscore(simpleName.substring(0, simpleName.length() - "Controller".length()));
+
+        //only register names which map back to the same class, the rest will be resolved on first request
+        if (!ControllerFactory.getControllerClassName(controllerName, packageSuffix).equals(className)) {
+            return;
+        }
+        try {
+            Class<?> controllerClass = Class.forName(className, false, ControllerRegistry.class.getClassLoader());
+            if (AppController.class.isAssignableFrom(controllerClass)) {
+                put(packageSuffix, controllerName, new Entry(controllerClass.asSubclass(AppController.class)));
+            }
+        } catch (Throwable e) {
+            LOGGER.warn("Failed to register controller: " + className + ", will try again on request", e);
+        }
+    }
+
+    /**
+     * Creates a new instance of a controller.
+     *
+     * @param controllerName name of controller as it appears in URI, such as "greeting" or "user-profile".
+     * @param packageSuffix package suffix in between "app.controllers" and controller class, null if none.
+     * @return new instance of controller, or a shared instance of a {@link org.javalite.activeweb.annotations.SingletonController}.
+     * @throws ClassLoadException if there is no controller with such name or it cannot be created.
+     */
+    AppController createController(String controllerName, String packageSuffix) throws ClassLoadException {
+        Entry entry = getEntry(controllerName, packageSuffix);
+        try {
+            ControllerMetadata metadata = ControllerMetadata.of(entry.controllerClass);
+            return metadata.isSingleton() ? metadata.getSingleton() : entry.constructor.newInstance();
+        } catch (WebException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ClassLoadException(e);
+        }
+    }
+
+    /**
+     * Finds a controller class.
+     *
+     * @param controllerName name of controller as it appears in URI.
+     * @param packageSuffix package suffix in between "app.controllers" and controller class, null if none.
+     * @return controller class.
+     * @throws ClassLoadException if there is no controller with such name.
+     */
+    Class<? extends AppController> getControllerClass(String controllerName, String packageSuffix) throws ClassLoadException {
+        return getEntry(controllerName, packageSuffix).controllerClass;
+    }
+
+    private Entry getEntry(String controllerName, String packageSuffix) throws ClassLoadException {
+        String key = packageSuffix == null ? NO_PACKAGE : packageSuffix;
+        Map<String, Entry> controllers = packages.get(key);
+        Entry entry = controllers == null ? null : controllers.get(controllerName);
+        if (entry != null) {
+            return entry;
+        }
+
+        Map<String, ClassNotFoundException> unknown = missing.get(key);
+        ClassNotFoundException notFound = unknown == null ? null : unknown.get(controllerName);
+        if (notFound != null) {
+            //a trace of a remembered name only shows this method, not filled on every request in production
+            throw new ClassLoadException(notFound, !Configuration.productionErrors());
+        }
+        return load(controllerName, packageSuffix);
+    }
+
+    private Entry load(String controllerName, String packageSuffix) throws ClassLoadException {
+        String className = ControllerFactory.getControllerClassName(controllerName, packageSuffix);
+        Class<?> controllerClass;
+        try {
+            controllerClass = Class.forName(className);
+        } catch (ClassNotFoundException e) {
+            remember(packageSuffix, controllerName, e);
+            throw new ClassLoadException(e);
+        } catch (Throwable e) {
+            throw new ClassLoadException(e);
+        }
+
+        if (!AppController.class.isAssignableFrom(controllerClass)) {
+            throw new ClassLoadException("Class: " + className + " is not the expected type, are you sure it extends "
+                    + AppController.class.getName() + "?");
+        }
+        Entry entry;
+        try {
+            entry = new Entry(controllerClass.asSubclass(AppController.class));
+        } catch (Exception e) {
+            throw new ClassLoadException(e);
+        }
+        put(packageSuffix, controllerName, entry);
+        return entry;
+    }
+
+    private void put(String packageSuffix, String controllerName, Entry entry) {
+        String key = packageSuffix == null ? NO_PACKAGE : packageSuffix;
+        Map<String, Entry> controllers = packages.get(key);
+        if (controllers == null) {
+            Map<String, Entry> existing = packages.putIfAbsent(key, controllers = new ConcurrentHashMap<>());
+            if (existing != null) {
+                controllers = existing;
+            }
+        }
+        controllers.put(controllerName, entry);
+    }
+
+    private synchronized void remember(String packageSuffix, String controllerName, ClassNotFoundException notFound) {
+        if (missingCount >= MAX_MISSING) {
+            return;
+        }
+        String key = packageSuffix == null ? NO_PACKAGE : packageSuffix;
+        Map<String, ClassNotFoundException> unknown = missing.get(key);
+        if (unknown == null) {
+            missing.put(key, unknown = new ConcurrentHashMap<>());
+        }
+        if (unknown.put(controllerName, notFound) == null) {
+            missingCount++;
+        }
+    }
+
+    private static class Entry {
+        private final Class<? extends AppController> controllerClass;
+        private final Constructor<? extends AppController> constructor;
+
+        Entry(Class<? extends AppController> controllerClass) throws NoSuchMethodException {
+            this.controllerClass = controllerClass;
+            this.constructor = controllerClass.getConstructor();
+        }
+    }
+}
@@ -19,18 +19,18 @@ import com.google.inject.Injector;
 import org.javalite.activeweb.controller_filters.HttpSupportFilter;
 import org.javalite.activeweb.freemarker.AbstractFreeMarkerConfig;
 import org.javalite.activeweb.freemarker.FreeMarkerTemplateManager;
-import org.javalite.common.Inflector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.InvocationTargetException;
+import java.io.IOException;
 import java.lang.reflect.Method;
-import java.util.List;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
-import static org.javalite.common.Util.join;
-
 /**
  * One of the main classes of the framework, responsible for execution of controllers and filters.
  *
@@ -43,69 +43,167 @@ class ControllerRunner {
     private static Logger LOGGER = LoggerFactory.getLogger(ControllerRunner.class);
     private boolean tagsInjected;
 
-    protected void run(Route route) throws Exception {
+    /**
+     * Executes filters and controller, and renders a response.
+     *
+     * @param route current route
+     * @return asynchronous action if the action completes later, see {@link AppController#async(CompletionStage, Consumer)}.
+     * The caller must complete the request with {@link #resume(Route, AsyncAction)} once the action completes.
+     * Null if request was processed.
+     */
+    protected AsyncAction run(Route route) throws Exception {
         Configuration.injectFilters(); //no worries, will execute once, as filters have a life span of the app
+        AsyncAction asyncAction = null;
         try {
             try { //nested try , a bit ugly, but we need to ensure filter.after() methods are executed.
                 filterBefore(route);
-                executeController(route);
+                asyncAction = executeController(route);
             } finally {
-                filterAfter(route);
+                if (asyncAction == null) {
+                    filterAfter(route);
+                }
             }
         }
         catch(ActionNotFoundException e){
             throw e;
         }
         catch (RuntimeException e) {
-            RequestContext.setControllerResponse(null);//must blow away, as this response is not valid anymore.
+            handleException(e, route);
+        }
 
-            if (exceptionHandled(e, route)) {
-                LOGGER.debug("A filter has called render(..) method, proceeding to render it...");
-                renderResponse(route);//a filter has created an instance of a controller response, need to render it.
-            }else{
-                throw e;//if exception was not handled by filter, re-throw
+        if (asyncAction != null && !RequestContext.getHttpRequest().isAsyncSupported()) {
+            LOGGER.debug("Asynchronous requests are not supported, waiting for action to complete");
+            asyncAction.await();
+            resume(route, asyncAction);
+            return null;
+        }
+        return asyncAction;
+    }
+
+    /**
+     * Completes a request after an asynchronous action completed: executes continuation, renders response and
+     * executes <code>after()</code> methods of filters. Request context must be restored on current thread.
+     *
+     * @param route current route
+     * @param asyncAction action returned from {@link #run(Route)}
+     */
+    protected void resume(Route route, AsyncAction asyncAction) throws Exception {
+        try {
+            try {
+                long start = System.nanoTime();
+                try {
+                    asyncAction.resume();
+                } finally {
+                    RequestContext.addPhaseNanos(RequestPhase.ACTION, System.nanoTime() - start);
+                }
+                renderController(route);
+            } finally {
+                filterAfter(route);
             }
         }
+        catch(ActionNotFoundException e){
+            throw e;
+        }
+        catch (RuntimeException e) {
+            handleException(e, route);
+        }
     }
 
-    private void executeController(Route route) throws IllegalAccessException, InstantiationException {
+    private void handleException(RuntimeException e, Route route) throws Exception {
+        RequestContext.setControllerResponse(null);//must blow away, as this response is not valid anymore.
+
+        if (exceptionHandled(e, route)) {
+            LOGGER.debug("A filter has called render(..) method, proceeding to render it...");
+            renderResponse(route);//a filter has created an instance of a controller response, need to render it.
+        }else{
+            throw e;//if exception was not handled by filter, re-throw
+        }
+    }
+
+    private AsyncAction executeController(Route route) throws IllegalAccessException, InstantiationException {
         if (RequestContext.getControllerResponse() == null) {//execute controller... only if a filter did not respond
 
-            String actionMethod = Inflector.camelize(route.getActionName().replace('-', '_'), false);
+            String actionMethod = ControllerMetadata.of(route.getController().getClass()).getActionMethodName(route.getActionName());
             if (checkActionMethod(route.getController(), actionMethod)) {
                 injectController(route.getController());
-                LOGGER.debug("Executing: " + route.getController() + "#" + actionMethod);
-                executeAction(route.getController(), actionMethod);
+                flushLayoutHead(route);
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Executing: " + route.getController() + "#" + actionMethod);
+                }
+                Object result = executeAction(route.getController(), actionMethod);
+                AsyncAction asyncAction = RequestContext.getRequestVo().getAsyncAction();
+                if (asyncAction == null && result instanceof CompletionStage) {
+                    asyncAction = new AsyncAction((CompletionStage<?>) result, null);
+                }
+                if (asyncAction != null) {
+                    RequestContext.getRequestVo().setAsyncAction(null);
+                    return asyncAction;
+                }
             }
         }
+        renderController(route);
+        return null;
+    }
+
+    private void renderController(Route route) throws IllegalAccessException, InstantiationException {
+        long start = System.nanoTime();
+        try {
+            if(injectTags){
+                injectFreemarkerTags();
+            }
 
-        if(injectTags){
-            injectFreemarkerTags();
+            renderResponse(route);
+            processFlash();
+        } finally {
+            RequestContext.addPhaseNanos(RequestPhase.RENDER, System.nanoTime() - start);
         }
+    }
 
-        renderResponse(route);
-        processFlash();
+    /**
+     * Sends head of layout before action is executed, see {@link AppController#flushLayoutHead()}.
+     */
+    private void flushLayoutHead(Route route) {
+        AppController controller = route.getController();
+        String layout = controller.getLayout();
+        if (layout == null || !"GET".equals(RequestContext.getHttpRequest().getMethod()) || !controller.flushLayoutHead()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            HttpServletResponse response = RequestContext.getHttpResponse();
+            setEncoding(route);
+            response.setContentType(controller.getContentType());
+            Map<String, Object> values = new HashMap<>();
+            ParamCopy.copyInto(values);
+            if (Configuration.getTemplateManager().mergeLayoutHead(values, layout, response.getWriter())) {
+                response.flushBuffer();
+                RequestContext.setFlushedLayout(layout);
+            }
+        } catch (IOException e) {
+            throw new ViewException(e);
+        } finally {
+            RequestContext.addPhaseNanos(RequestPhase.RENDER, System.nanoTime() - start);
+        }
     }
 
-    private void executeAction(Object controller, String actionName) {
+    private Object executeAction(AppController controller, String actionName) {
+        ControllerMetadata metadata = ControllerMetadata.of(controller.getClass());
+        Method m = metadata.getActionMethod(actionName);
+        if (m == null) {
+            throw new ControllerException(new NoSuchMethodException(controller.getClass().getName() + "." + actionName + "()"));
+        }
+        if(!AppController.class.isAssignableFrom(m.getDeclaringClass())){ // see https://github.com/javalite/activeweb/issues/272
+            throw new ActionNotFoundException("Cannot execute action '" + actionName + "' on controller: " + controller);
+        }
+        long start = System.nanoTime();
         try{
-            Method m = controller.getClass().getMethod(actionName);
-            if(!AppController.class.isAssignableFrom(m.getDeclaringClass())){ // see https://github.com/javalite/activeweb/issues/272
-                throw new ActionNotFoundException("Cannot execute action '" + actionName + "' on controller: " + controller);
-            }
-            m.invoke(controller);
-        }catch(InvocationTargetException e){
-            if(e.getCause() != null && e.getCause() instanceof  WebException){
-                throw (WebException)e.getCause();
-            }else if(e.getCause() != null && e.getCause() instanceof RuntimeException){
-                throw (RuntimeException)e.getCause();
-            }else if(e.getCause() != null){
-                throw new ControllerException(e.getCause());
-            }
-        }catch(WebException e){
+            return metadata.invokeAction(controller, actionName);
+        }catch(RuntimeException e){
             throw e;
-        }catch(Exception e){
+        }catch(Throwable e){
             throw new ControllerException(e);
+        }finally {
+            RequestContext.addPhaseNanos(RequestPhase.ACTION, System.nanoTime() - start);
         }
     }
 
@@ -126,24 +224,28 @@ class ControllerRunner {
     }
 
     /**
-     * Injects controller with dependencies from Guice module.
+     * Injects controller with dependencies from Guice module. Singleton controllers are injected once, when created.
      */
     private void injectController(AppController controller) {
         Injector injector = Configuration.getInjector();
-        if (injector != null) {
+        if (injector != null && !ControllerMetadata.of(controller.getClass()).isSingleton(controller)) {
             injector.injectMembers(controller);
         }
     }
 
 
-    private void renderResponse(Route route) throws InstantiationException, IllegalAccessException {
-
+    private void setEncoding(Route route) {
         //set encoding. Priority: action, then controller
         if (RequestContext.getEncoding() != null) {
             RequestContext.getHttpResponse().setCharacterEncoding(RequestContext.getEncoding());
         } else if (route.getController().getEncoding() != null) {
             RequestContext.getHttpResponse().setCharacterEncoding(route.getController().getEncoding());
         }
+    }
+
+    private void renderResponse(Route route) throws InstantiationException, IllegalAccessException {
+
+        setEncoding(route);
 
         ControllerResponse controllerResponse = RequestContext.getControllerResponse();
         String controllerLayout = route.getController().getLayout();
@@ -156,6 +258,9 @@ class ControllerRunner {
         controllerResponse = RequestContext.getControllerResponse();
         if (controllerResponse instanceof RenderTemplateResponse) {
             ParamCopy.copyInto((controllerResponse.values()));
+            if (route.getController().generateETags() && ETags.conditional(RequestContext.getHttpRequest())) {
+                ((RenderTemplateResponse) controllerResponse).setETag(true);
+            }
             controllerResponse.process();
         }else if(!(controllerResponse instanceof RenderTemplateResponse)){
             if(controllerResponse.getContentType() == null){
@@ -221,22 +326,21 @@ class ControllerRunner {
             LOGGER.warn("Requested action does not support HTTP method: " + method.name() + ", returning status code 405.");
             RequestContext.setControllerResponse(res);
 
-            //TODO: candidate for caching below, list of allowed HTTP methods
             //see http://www.w3.org/Protocols/rfc2616/rfc2616-sec14.html
-            RequestContext.getHttpResponse().setHeader("Allow", join(controller.allowedActions(actionMethod), ", "));
+            RequestContext.getHttpResponse().setHeader("Allow", ControllerMetadata.of(controller.getClass()).getAllowHeader(actionMethod));
             return false;
         }
         return true;
     }
 
     private boolean exceptionHandled(Exception e, Route route) throws Exception{
-        for(HttpSupportFilter filter: Configuration.getFilters()){
-            if(Configuration.getFilterMetadata(filter).matches(route)){
+        for(HttpSupportFilter filter: Configuration.getFilterChain(route)){
+            if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("Executing filter: " + filter.getClass().getName() + "#exceptionHandled");
-                filter.onException(e);
-                if (RequestContext.getControllerResponse() != null){ // this filter sent a response, breaking the loop
-                    break;
-                }
+            }
+            filter.onException(e);
+            if (RequestContext.getControllerResponse() != null){ // this filter sent a response, breaking the loop
+                break;
             }
         }
         return RequestContext.getControllerResponse() != null;
@@ -249,17 +353,17 @@ class ControllerRunner {
      * @param route current route
      */
     private void filterBefore(Route route) {
+        long start = System.nanoTime();
         try {
-
-            for(HttpSupportFilter filter: Configuration.getFilters()){
-                if(Configuration.getFilterMetadata(filter).matches(route)){
+            for(HttpSupportFilter filter: Configuration.getFilterChain(route)){
+                if (LOGGER.isDebugEnabled()) {
                     LOGGER.debug("Executing filter: " + filter.getClass().getName() + "#before");
-                    filter.before();
-                }else{
-                    LOGGER.debug("Filter: " + filter.getClass().getName() + "#before  does not match route: " + route );
                 }
+                filter.before();
                 if (RequestContext.getControllerResponse() != null){
-                    LOGGER.debug("Filter: " + filter.getClass().getName() + "#before  responded to client. Breaking filter chain for route:  " + route );
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("Filter: " + filter.getClass().getName() + "#before  responded to client. Breaking filter chain for route:  " + route);
+                    }
                     return;//a filter responded, no need to run other filters!
                 }
             }
@@ -267,6 +371,8 @@ class ControllerRunner {
             throw e;
         }catch(Exception e){
             throw new FilterException(e);
+        } finally {
+            RequestContext.addPhaseNanos(RequestPhase.BEFORE_FILTERS, System.nanoTime() - start);
         }
     }
 
@@ -274,19 +380,19 @@ class ControllerRunner {
      * Run filters in opposite order
      */
     private void filterAfter(Route route) {
+        long start = System.nanoTime();
         try {
-            List<HttpSupportFilter> filters = Configuration.getFilters();
-            for (int i = filters.size() - 1; i >= 0; i--) {
-                HttpSupportFilter filter = filters.get(i);
-                if(Configuration.getFilterMetadata(filter).matches(route)){
-                    LOGGER.debug("Executing filter: " + filter.getClass().getName() + "#after");
-                    filters.get(i).after();
-                }else {
-                    LOGGER.debug("Filter: " + filter.getClass().getName() + "#after does not match route: " + route );
+            HttpSupportFilter[] filters = Configuration.getFilterChain(route);
+            for (int i = filters.length - 1; i >= 0; i--) {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Executing filter: " + filters[i].getClass().getName() + "#after");
                 }
+                filters[i].after();
             }
         } catch (Exception e) {
             throw new FilterException(e);
+        } finally {
+            RequestContext.addPhaseNanos(RequestPhase.AFTER_FILTERS, System.nanoTime() - start);
         }
     }
 }
@@ -1,5 +1,6 @@
 package org.javalite.activeweb;
 
+import java.io.File;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.lang.reflect.InvocationTargetException;
@@ -36,7 +37,10 @@ abstract public class DynamicClassFactory {
     public static Class getCompiledClass(String className) throws ClassLoadException{
         Class theClass;
         try {
-            if (Configuration.activeReload()) {
+            DynamicCompiler compiler;
+            if (Configuration.activeReload() && (compiler = DynamicCompiler.instance()) != null) {
+                theClass = compiler.loadClass(className);
+            } else if (Configuration.activeReload()) {
                 String compilationResult = compileClass(className);
                 if (compilationResult.contains("cannot read")) {
                     throw new ClassLoadException(compilationResult);
@@ -84,7 +88,24 @@ abstract public class DynamicClassFactory {
         return writer.toString();
     }
 
-    private static String getClasspath(URL[] urls) {
+    /**
+     * Returns a source file of a class, as it is used for compilation in active reload mode.
+     *
+     * @param className fully qualified class name
+     * @return file under "src/main/java", the file might not exist.
+     */
+    static File getSourceFile(String className) {
+        return new File(getSourceDir(), className.replace(".", System.getProperty("file.separator")) + ".java");
+    }
+
+    /**
+     * @return "src/main/java" directory, relative to working directory.
+     */
+    static File getSourceDir() {
+        return new File(join(list("src", "main", "java"), System.getProperty("file.separator")));
+    }
+
+    static String getClasspath(URL[] urls) {
         String classpath = "";
         for (URL url : urls) {
             String path = url.getPath();
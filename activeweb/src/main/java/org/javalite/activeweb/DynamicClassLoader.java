@@ -21,22 +21,35 @@ import org.slf4j.LoggerFactory;
 
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
 
 import static org.javalite.common.Util.bytes;
 
 
 /**
- * Always loads a class from a file. No caching of any kind, used in development mode only.
+ * Loads controllers and route configuration from compiled bytes or from files, while all other classes are loaded
+ * by parent. Each instance loads a class once, a new instance is needed to load new versions of classes.
+ * Used in development mode only.
  */
 class DynamicClassLoader extends ClassLoader {
 
     private static Logger LOGGER = LoggerFactory.getLogger(DynamicClassLoader.class);
 
     private String baseDir;
+    private Map<String, byte[]> classes;
 
     DynamicClassLoader(ClassLoader parent, String baseDir){
+        this(parent, baseDir, Collections.<String, byte[]>emptyMap());
+    }
+
+    /**
+     * @param classes compiled classes keyed by class name, these are loaded before files in base directory.
+     */
+    DynamicClassLoader(ClassLoader parent, String baseDir, Map<String, byte[]> classes){
         super(parent);
         this.baseDir = baseDir;
+        this.classes = classes;
     }
 
     @Override
@@ -50,13 +63,21 @@ class DynamicClassLoader extends ClassLoader {
             if(name.endsWith("Controller") || name.contains("Controller$")
                     || name.equals(Configuration.getRouteConfigClassName())){
 
-                String pathToClassFile = name.replace('.', '/') + ".class";
-
-                byte[] classBytes = bytes(getResourceAsStream(pathToClassFile));
-                Class<?> daClass = defineClass(name, classBytes, 0, classBytes.length);
-
-                LOGGER.debug("Loaded class: " + name);
-                return daClass;
+                synchronized (getClassLoadingLock(name)) {
+                    Class<?> daClass = findLoadedClass(name);
+                    if (daClass != null) {
+                        return daClass;
+                    }
+                    byte[] classBytes = classes.get(name);
+                    if (classBytes == null) {
+                        String pathToClassFile = name.replace('.', '/') + ".class";
+                        classBytes = bytes(getResourceAsStream(pathToClassFile));
+                    }
+                    daClass = defineClass(name, classBytes, 0, classBytes.length);
+
+                    LOGGER.debug("Loaded class: " + name);
+                    return daClass;
+                }
             }else{
                 return loadByParent(name);
             }
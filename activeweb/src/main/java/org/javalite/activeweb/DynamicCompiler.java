@@ -0,0 +1,356 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package org.javalite.activeweb;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.tools.*;
+import java.io.*;
+import java.net.URI;
+import java.net.URLClassLoader;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Compiles controllers in active reload mode. A file watcher collects source files changed since the application
+ * started. When a class is requested after a change, changed sources are compiled together in memory with
+ * {@link JavaCompiler}, and a new {@link DynamicClassLoader} is created for compiled classes. Until the next change,
+ * the same class loader, and therefore the same classes, are used for all requests.
+ * <p></p>
+ * If a source file does not compile, classes of that file, and changed classes which depend on it, fail with
+ * {@link CompilationException}, while the rest of classes are compiled and served as usual. While one request compiles, other requests are served with classes
+ * of the previous compilation.
+ *
+ * @author Igor Polevoy
+ */
+class DynamicCompiler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DynamicCompiler.class);
+
+    private static volatile DynamicCompiler instance;
+    private static boolean compilerMissing;
+
+    private final JavaCompiler compiler;
+    private final Path sourceDir;
+    private final String targetDir;
+    private final ClassLoader parent;
+    private final List<String> options;
+
+    private final Set<Path> changedSources = Collections.newSetFromMap(new ConcurrentHashMap<Path, Boolean>());
+    private final ReentrantLock compileLock = new ReentrantLock();
+    private volatile boolean dirty = true;
+    private volatile Generation generation;
+    private WatchService watchService;
+
+    DynamicCompiler(JavaCompiler compiler, File sourceDir, String targetDir, ClassLoader parent) {
+        this.compiler = compiler;
+        this.sourceDir = sourceDir.toPath().toAbsolutePath().normalize();
+        this.targetDir = targetDir;
+        this.parent = parent;
+        this.options = Arrays.asList("-g:lines,source,vars", "-classpath", targetDir + File.pathSeparator + getClasspath());
+        watch();
+    }
+
+    /**
+     * @return compiler for sources in "src/main/java", null if JDK compiler is not available, such as on a JRE.
+     */
+    static DynamicCompiler instance() {
+        if (instance == null) {
+            synchronized (DynamicCompiler.class) {
+                if (instance == null && !compilerMissing) {
+                    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+                    if (compiler == null) {
+                        LOGGER.warn("Java compiler is not available, will compile with javac on every request");
+                        compilerMissing = true;
+                        return null;
+                    }
+                    instance = new DynamicCompiler(compiler, DynamicClassFactory.getSourceDir(),
+                            Configuration.getTargetDir(), ControllerFactory.class.getClassLoader());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Loads a class, compiling changed sources first if needed.
+     *
+     * @param className fully qualified name of class.
+     * @return class from current compilation.
+     * @throws CompilationException if source of the class does not compile.
+     * @throws ClassNotFoundException if class cannot be found.
+     */
+    Class<?> loadClass(String className) throws ClassNotFoundException {
+        Generation current = getGeneration();
+        String error = current.errors.get(topLevelName(className));
+        if (error != null) {
+            throw new CompilationException(error);
+        }
+        return current.loader.loadClass(className);
+    }
+
+    private Generation getGeneration() {
+        Generation current = generation;
+        if (!dirty && current != null) {
+            return current;
+        }
+        if (current != null && !compileLock.tryLock()) {
+            return current; // another request is compiling, do not wait for it
+        }
+        if (current == null) {
+            compileLock.lock();
+        }
+        try {
+            if (dirty || generation == null) {
+                //cleared before compilation, so that a change made while compiling is not lost
+                dirty = false;
+                try {
+                    generation = compile();
+                } catch (RuntimeException e) {
+                    dirty = true;
+                    throw e;
+                }
+            }
+            return generation;
+        } finally {
+            compileLock.unlock();
+        }
+    }
+
+    private Generation compile() {
+        List<File> sources = new ArrayList<>();
+        for (Path path : changedSources) {
+            if (Files.exists(path)) {
+                sources.add(path.toFile());
+            } else {
+                changedSources.remove(path);
+            }
+        }
+        Map<String, byte[]> classes = new HashMap<>();
+        Map<String, String> errors = new HashMap<>();
+        if (!sources.isEmpty()) {
+            long start = System.currentTimeMillis();
+            compile(sources, classes, errors);
+            if (!errors.isEmpty()) {
+                //compile the rest without broken files, so that unrelated classes are reloaded
+                List<File> rest = new ArrayList<>();
+                for (File source : sources) {
+                    if (!errors.containsKey(className(source.toPath()))) {
+                        rest.add(source);
+                    }
+                }
+                classes.clear();
+                if (!rest.isEmpty()) {
+                    compile(rest, classes, errors);
+                }
+            }
+            LOGGER.info("Compiled " + sources.size() + " changed source file(s) in " + (System.currentTimeMillis() - start)
+                    + " milliseconds" + (errors.isEmpty() ? "" : ", failed: " + errors.keySet()));
+        }
+        return new Generation(new DynamicClassLoader(parent, targetDir, classes), errors);
+    }
+
+    private void compile(List<File> sources, Map<String, byte[]> classes, Map<String, String> errors) {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        StandardJavaFileManager standardManager = compiler.getStandardFileManager(diagnostics, null, null);
+        try (MemoryFileManager fileManager = new MemoryFileManager(standardManager, classes)) {
+            Iterable<? extends JavaFileObject> units = standardManager.getJavaFileObjectsFromFiles(sources);
+            boolean success = compiler.getTask(null, fileManager, diagnostics, options, null, units).call();
+            if (!success) {
+                for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                    if (diagnostic.getKind() == Diagnostic.Kind.ERROR && diagnostic.getSource() != null) {
+                        String className = className(Paths.get(diagnostic.getSource().toUri()));
+                        String message = diagnostic.getSource().getName() + ":" + diagnostic.getLineNumber() + ": error: "
+                                + diagnostic.getMessage(null);
+                        String previous = errors.get(className);
+                        errors.put(className, previous == null ? message : previous + System.getProperty("line.separator") + message);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new CompilationException(e.getMessage());
+        }
+    }
+
+    private String className(Path source) {
+        String relative = sourceDir.relativize(source.toAbsolutePath().normalize()).toString();
+        return relative.substring(0, relative.length() - ".java".length()).replace(File.separatorChar, '.');
+    }
+
+    private static String topLevelName(String className) {
+        int index = className.indexOf('$');
+        return index == -1 ? className : className.substring(0, index);
+    }
+
+    private static String getClasspath() {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        if (!(loader instanceof URLClassLoader)) {
+            return System.getProperty("java.class.path");
+        }
+        return DynamicClassFactory.getClasspath(((URLClassLoader) loader).getURLs());
+    }
+
+    /**
+     * Starts a daemon thread which collects changed source files.
+     */
+    private void watch() {
+        if (!Files.isDirectory(sourceDir)) {
+            LOGGER.warn("Directory " + sourceDir + " not found, classes will be loaded from " + targetDir);
+            return;
+        }
+        try {
+            watchService = sourceDir.getFileSystem().newWatchService();
+            register(watchService, sourceDir);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to watch " + sourceDir + ", classes will be loaded from " + targetDir, e);
+            return;
+        }
+        Thread watcher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (true) {
+                    WatchKey key;
+                    try {
+                        key = watchService.take();
+                    } catch (InterruptedException | ClosedWatchServiceException e) {
+                        return;
+                    }
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == OVERFLOW) {
+                            dirty = true;
+                            continue;
+                        }
+                        Path path = ((Path) key.watchable()).resolve((Path) event.context());
+                        if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                            try {
+                                register(watchService, path);
+                                addSources(path);
+                            } catch (IOException e) {
+                                LOGGER.warn("Failed to watch " + path, e);
+                            }
+                        } else if (path.toString().endsWith(".java")) {
+                            changed(path);
+                        }
+                    }
+                    key.reset();
+                }
+            }
+        }, "activeweb-source-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Stops watching source files by the compiler in use, if any. A new compiler is created on next request.
+     */
+    static void closeInstance() {
+        synchronized (DynamicCompiler.class) {
+            DynamicCompiler current = instance;
+            instance = null;
+            if (current != null) {
+                try {
+                    current.close();
+                } catch (IOException e) {
+                    LOGGER.warn("Failed to stop watching " + current.sourceDir, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops watching source files.
+     */
+    void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private void register(final WatchService watchService, Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void addSources(Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (file.toString().endsWith(".java")) {
+                    changed(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Marks a source file as changed, it is compiled on the next request.
+     */
+    void changed(Path source) {
+        changedSources.add(source.toAbsolutePath().normalize());
+        dirty = true;
+    }
+
+    private static class Generation {
+        private final DynamicClassLoader loader;
+        private final Map<String, String> errors;
+
+        Generation(DynamicClassLoader loader, Map<String, String> errors) {
+            this.loader = loader;
+            this.errors = errors;
+        }
+    }
+
+    /**
+     * Keeps compiled classes in memory instead of writing them to disk.
+     */
+    private static class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        private final Map<String, byte[]> classes;
+
+        MemoryFileManager(StandardJavaFileManager fileManager, Map<String, byte[]> classes) {
+            super(fileManager);
+            this.classes = classes;
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, final String className, JavaFileObject.Kind kind,
+                                                   FileObject sibling) {
+            return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return new ByteArrayOutputStream() {
+                        @Override
+                        public void close() throws IOException {
+                            super.close();
+                            classes.put(className, toByteArray());
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package org.javalite.activeweb;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Entity tags of responses, used to answer conditional GET requests with status 304.
+ *
+ * @author Igor Polevoy
+ */
+class ETags {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private ETags() {}
+
+    /**
+     * Computes a tag from text with 64-bit FNV-1a hash.
+     *
+     * @param chars text.
+     * @param length number of chars to use.
+     * @return quoted tag, such as <code>"5f0c3a8e1b2d4c6f"</code>.
+     */
+    static String of(char[] chars, int length) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < length; i++) {
+            hash ^= chars[i];
+            hash *= FNV_PRIME;
+        }
+        return '"' + Long.toHexString(hash) + '"';
+    }
+
+    /**
+     * @param version version of content, such as time of last change.
+     * @return quoted tag.
+     */
+    static String of(String version) {
+        return of(version.toCharArray(), version.length());
+    }
+
+    /**
+     * @param request request.
+     * @return true if a response to request can be 304: it is GET or HEAD.
+     */
+    static boolean conditional(HttpServletRequest request) {
+        String method = request.getMethod();
+        return "GET".equals(method) || "HEAD".equals(method);
+    }
+
+    /**
+     * Checks if tag is one of tags in <code>If-None-Match</code> header of request. Weak tags match too.
+     *
+     * @param request request.
+     * @param etag quoted tag.
+     * @return true if client has content with this tag.
+     */
+    static boolean matches(HttpServletRequest request, String etag) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package org.javalite.activeweb;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.javalite.common.Collections.map;
+
+/**
+ * Error pages of production error mode, see {@link Configuration#setProductionErrors(boolean)}: keeps rendered
+ * "not found" pages, and limits how many error pages are rendered per second.
+ *
+ * @author Igor Polevoy
+ */
+class ErrorPages {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ErrorPages.class);
+
+    static final String NOT_FOUND = "<html><head><title>Not Found</title></head><body><h1>Not Found</h1></body></html>";
+    static final String INTERNAL_ERROR = "<html><head><title>Internal Error</title></head><body><h1>Internal Error</h1></body></html>";
+
+    private final ConcurrentHashMap<String, String> notFoundPages = new ConcurrentHashMap<>();
+    private final AtomicLong second = new AtomicLong(-1);
+    private final AtomicInteger rendered = new AtomicInteger();
+
+    /**
+     * Returns a "not found" page, rendering it on first call for a template and layout. Values available to the
+     * template do not depend on a request. If the template fails, a static page is returned. Pages are not kept
+     * when active reload is on, so that changes of templates are visible.
+     *
+     * @param template template name, such as "/system/404".
+     * @param layout layout, can be null.
+     * @param templateManager manager to render template with.
+     * @param contextPath context path of application.
+     * @return text of page.
+     */
+    String notFoundPage(String template, String layout, TemplateManager templateManager, String contextPath) {
+        if (Configuration.activeReload()) {
+            return render(template, layout, templateManager, contextPath);
+        }
+        String key = layout == null ? template : template + "|" + layout;
+        String page = notFoundPages.get(key);
+        if (page == null) {
+            page = render(template, layout, templateManager, contextPath);
+            String existing = notFoundPages.putIfAbsent(key, page);
+            if (existing != null) {
+                page = existing;
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Counts an error page against a limit of pages per second.
+     *
+     * @return true if an error page can be rendered, false if the limit for current second is reached.
+     */
+    boolean tryRender() {
+        long now = System.nanoTime() / 1000000000L;
+        long current = second.get();
+        if (now != current && second.compareAndSet(current, now)) {
+            rendered.set(0);
+        }
+        return rendered.incrementAndGet() <= Configuration.getMaxErrorPagesPerSecond();
+    }
+
+    private String render(String template, String layout, TemplateManager templateManager, String contextPath) {
+        //same keys as ParamCopy and error data of a page in development mode, with values that are not request specific
+        Map<String, Object> values = map("message", "Not Found", "stack_trace", "",
+                "session", Collections.emptyMap(), "request", Collections.emptyMap(),
+                "context_path", contextPath, "activeweb", map("environment", Configuration.getEnv()),
+                "request_props", map("url", ""));
+        try {
+            StringWriter writer = new StringWriter();
+            templateManager.merge(values, template, layout, null, writer);
+            return writer.toString();
+        } catch (Exception e) {
+            LOGGER.error("Failed to render template: '" + template + "', a static page will be sent instead", e);
+            return NOT_FOUND;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package org.javalite.activeweb;
+
+import org.javalite.activeweb.controller_filters.HttpSupportFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Filters that apply to a controller action, in order of definition. A chain is resolved from
+ * {@link FilterMetadata} on first request to an action and then reused, so that a request only touches filters
+ * that apply to it. Chains are kept for existing actions only, so that requests to random URIs do not fill memory.
+ * <p></p>
+ * An instance is created for a snapshot of filter configuration, {@link Configuration} drops it when filters
+ * are changed.
+ *
+ * @author Igor Polevoy
+ */
+class FilterChains {
+
+    private static final HttpSupportFilter[] NONE = new HttpSupportFilter[0];
+
+    private final HttpSupportFilter[] filters;
+    private final FilterMetadata<?>[] metadata;
+    //keyed by controller class name, as are filter configurations, because classes are reloaded in active reload mode
+    private final ConcurrentHashMap<String, Map<String, HttpSupportFilter[]>> chains = new ConcurrentHashMap<>();
+
+    FilterChains(List<HttpSupportFilter> filters) {
+        this.filters = filters.toArray(new HttpSupportFilter[filters.size()]);
+        this.metadata = new FilterMetadata<?>[this.filters.length];
+        for (int i = 0; i < this.filters.length; i++) {
+            metadata[i] = Configuration.getFilterMetadata(this.filters[i]);
+        }
+    }
+
+    /**
+     * @param route current route
+     * @return filters which apply to the route in order of definition. Do not modify the array.
+     */
+    HttpSupportFilter[] get(Route route) {
+        if (filters.length == 0) {
+            return NONE;
+        }
+        Class<? extends AppController> controllerClass = route.getController().getClass();
+        String actionName = route.getActionName();
+        Map<String, HttpSupportFilter[]> actions = chains.get(controllerClass.getName());
+        HttpSupportFilter[] chain = actions == null || actionName == null ? null : actions.get(actionName);
+        if (chain != null) {
+            return chain;
+        }
+
+        chain = resolve(route);
+        if (actionName != null && isAction(controllerClass, actionName)) {
+            if (actions == null) {
+                actions = new ConcurrentHashMap<>();
+                Map<String, HttpSupportFilter[]> existing = chains.putIfAbsent(controllerClass.getName(), actions);
+                if (existing != null) {
+                    actions = existing;
+                }
+            }
+            actions.put(actionName, chain);
+        }
+        return chain;
+    }
+
+    private HttpSupportFilter[] resolve(Route route) {
+        List<HttpSupportFilter> chain = new ArrayList<>();
+        for (int i = 0; i < filters.length; i++) {
+            if (metadata[i].matches(route)) {
+                chain.add(filters[i]);
+            }
+        }
+        return chain.isEmpty() ? NONE : chain.toArray(new HttpSupportFilter[chain.size()]);
+    }
+
+    private static boolean isAction(Class<? extends AppController> controllerClass, String actionName) {
+        ControllerMetadata controllerMetadata = ControllerMetadata.of(controllerClass);
+        return controllerMetadata.getActionMethod(controllerMetadata.getActionMethodName(actionName)) != null;
+    }
+}
@@ -20,6 +20,7 @@ class FilterMetadata<T extends AppController> {
     final void addController(Class<T> controllerClass) {
         controllers.add(controllerClass.getName());
         wildcard = false;
+        Configuration.resetFilterChains();
     }
 
     @SafeVarargs
@@ -27,6 +28,7 @@ class FilterMetadata<T extends AppController> {
         for (Class<T> controllerClazz : controllerClasses) {
             excludedControllers.add(controllerClazz.getName());
         }
+        Configuration.resetFilterChains();
     }
 
     final boolean matches(Route route) {
@@ -50,12 +52,14 @@ class FilterMetadata<T extends AppController> {
 
     final void setExcludedActions(String[] excludedActions) {
         this.excludedActions.addAll(Collections.list(excludedActions));
+        Configuration.resetFilterChains();
     }
 
     void setIncludedActions(String[] includedActions) {
 
         wildcard = false;
         this.includedActions.addAll(Collections.list(includedActions));
+        Configuration.resetFilterChains();
     }
 
     boolean hasControllers(){
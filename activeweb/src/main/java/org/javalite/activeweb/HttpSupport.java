@@ -42,7 +42,6 @@ import static org.javalite.common.Collections.map;
  */
 public class HttpSupport {
     private Logger logger = LoggerFactory.getLogger(getClass());
-    private List<FormItem> formItems;
     private static Pattern hashPattern = Pattern.compile("\\[.*\\]");
 
     protected void logInfo(String info){
@@ -817,13 +816,14 @@ public class HttpSupport {
      * @return a collection of uploaded files from a multi-part request.
      */
     protected List<FormItem> multipartFormItems(String encoding) {
-        //we are thread safe, because controllers are pinned to a thread and discarded after each request.
+        //parsed once per request, kept on the request thread because filters and singleton controllers are shared.
+        HttpServletRequest req = RequestContext.getHttpRequest();
+        RequestVo requestVo = RequestContext.getRequestVo();
+        List<FormItem> formItems = requestVo != null ? requestVo.getFormItems(req) : null;
         if(formItems != null ){
             return formItems;
         }
 
-        HttpServletRequest req = RequestContext.getHttpRequest();
-
         if (req instanceof AWMockMultipartHttpServletRequest) {//running inside a test, and simulating upload.
             formItems = ((AWMockMultipartHttpServletRequest) req).getFormItems();
         } else {
@@ -851,11 +851,13 @@ public class HttpSupport {
                         formItems.add(new org.javalite.activeweb.FileItem(f));
                     }
                 }
-                return formItems;
             } catch (Exception e) {
                 throw new ControllerException(e);
             }
         }
+        if (requestVo != null) {
+            requestVo.setFormItems(req, formItems);
+        }
         return formItems;
     }
 
@@ -1688,6 +1690,81 @@ public class HttpSupport {
         return stringWriter.toString();
     }
 
+    /**
+     * Removes cached output of <code>&lt;@cache&gt;</code> tags whose keys start with a prefix. Use when data shown
+     * by these fragments changes.
+     *
+     * @param keyPrefix prefix of keys of fragments, such as <code>"sidebar"</code>. Empty string removes all fragments.
+     */
+    protected void purgeFragments(String keyPrefix){
+        Configuration.getTemplateManager().purgeFragments(keyPrefix);
+    }
+
+    /**
+     * Checks if client already has current version of content. Sends <code>ETag</code> header computed from
+     * the version, and if <code>If-None-Match</code> header of a GET request matches it, sets status 304 with no body.
+     * Use to skip loading data and rendering when content has not changed:
+     *
+     * <pre>
+     * public void show(){
+     *     Book book = Book.findById(getId());
+     *     if(notModified(book.getString("updated_at"))){
+     *         return;
+     *     }
+     *     view("book", book);
+     * }
+     * </pre>
+     *
+     * @param version version of content, such as time of last change or a revision number.
+     * @return true if client has this version and action should return without rendering.
+     */
+    protected boolean notModified(String version){
+        String etag = ETags.of(version);
+        RequestContext.getHttpResponse().setHeader("ETag", etag);
+        if (ETags.conditional(RequestContext.getHttpRequest()) && ETags.matches(RequestContext.getHttpRequest(), etag)) {
+            RequestContext.setControllerResponse(new NopResponse(null, 304));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks if client already has content changed at a given time. Sends <code>Last-Modified</code> header, and if
+     * <code>If-Modified-Since</code> header of a GET request is not earlier, sets status 304 with no body.
+     *
+     * @param lastModified time of last change of content in milliseconds.
+     * @return true if client has this content and action should return without rendering.
+     */
+    protected boolean notModifiedSince(long lastModified){
+        HttpServletRequest request = RequestContext.getHttpRequest();
+        RequestContext.getHttpResponse().setDateHeader("Last-Modified", lastModified);
+        long ifModifiedSince = request.getHeader("If-None-Match") == null ? ifModifiedSince(request) : -1;
+        //dates in headers have precision of seconds
+        if (ETags.conditional(request) && ifModifiedSince != -1 && lastModified / 1000 <= ifModifiedSince / 1000) {
+            RequestContext.setControllerResponse(new NopResponse(null, 304));
+            return true;
+        }
+        return false;
+    }
+
+    private static long ifModifiedSince(HttpServletRequest request) {
+        try {
+            return request.getDateHeader("If-Modified-Since");
+        } catch (IllegalArgumentException e) {
+            return -1; //malformed date, same as no header
+        }
+    }
+
+    /**
+     * Removes responses of actions marked with {@link org.javalite.activeweb.annotations.CachePage} whose paths
+     * start with a prefix. Use when data shown by these pages changes.
+     *
+     * @param pathPrefix prefix of path, such as <code>"/books"</code>. Empty string removes all pages.
+     */
+    protected void purgePages(String pathPrefix){
+        Configuration.getPageCache().purge(pathPrefix);
+    }
+
     /**
      * Returns response headers
      *
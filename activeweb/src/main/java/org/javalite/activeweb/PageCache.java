@@ -0,0 +1,387 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package org.javalite.activeweb;
+
+import org.javalite.activeweb.annotations.CachePage;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Responses of actions marked with {@link CachePage}. A response is recorded while it is sent to a client, and then
+ * sent from memory to requests with the same path, query string and values of headers listed in
+ * {@link CachePage#vary()}. Size of responses is limited in bytes, least recently used ones are removed first.
+ *
+ * @author Igor Polevoy
+ */
+class PageCache {
+
+    static final long DEFAULT_MAX_BYTES = 32 * 1024 * 1024;
+    //time for one request to render an expired page again, while other requests get the expired page
+    private static final long REFRESH_MILLIS = 10000;
+
+    //guarded by pages, kept only while a page of a URI is in cache
+    private final Map<String, Vary> varyHeaders = new HashMap<>();
+    private final LinkedHashMap<String, Page> pages = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private volatile long maxBytes = DEFAULT_MAX_BYTES;
+
+    void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Sends a page to a client if it is in cache and has not expired. When a page has expired, the first request
+     * gets false and renders the page again, other requests get the expired page until it is replaced. Requests
+     * with a session, cookies or credentials always get false, because filters of an application can check them.
+     *
+     * @param request request.
+     * @param response response to write a page to.
+     * @param path servlet path of request.
+     * @return true if a page was sent.
+     */
+    boolean send(HttpServletRequest request, HttpServletResponse response, String path) throws IOException {
+        if (userSpecific(request)) {
+            return false;
+        }
+        String uri = uri(request, path);
+        Page page;
+        synchronized (pages) {
+            Vary vary = varyHeaders.get(uri);
+            if (vary == null) {
+                return false;
+            }
+            page = pages.get(key(uri, vary.headers, request));
+        }
+        if (page == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        long refreshAt = page.refreshAt.get();
+        if (refreshAt <= now && page.refreshAt.compareAndSet(refreshAt, now + REFRESH_MILLIS)) {
+            return false;
+        }
+        page.writeTo(response);
+        return true;
+    }
+
+    /**
+     * Starts recording a response if an action is marked with {@link CachePage}.
+     *
+     * @param request request.
+     * @param response response.
+     * @param path servlet path of request.
+     * @param cachePage annotation of action, can be null.
+     * @return wrapper of response which records it, null if response should not be recorded.
+     */
+    Recorder record(HttpServletRequest request, HttpServletResponse response, String path, CachePage cachePage) {
+        if (cachePage == null || !"GET".equals(request.getMethod()) || Configuration.activeReload()) {
+            return null;
+        }
+        String uri = uri(request, path);
+        return new Recorder(request, response, uri, cachePage, key(uri, cachePage.vary(), request));
+    }
+
+    /**
+     * Keeps a recorded response, unless it is too large or can be specific to a user: a request has a session,
+     * cookies or credentials, or a response sets cookies.
+     *
+     * @param recorder recorder returned from {@link #record(HttpServletRequest, HttpServletResponse, String, CachePage)}.
+     */
+    void store(Recorder recorder) {
+        if (recorder.getStatus() != 200 || recorder.overflow || recorder.containsHeader("Set-Cookie")) {
+            return;
+        }
+        if (userSpecific(recorder.request)) {
+            return;
+        }
+        Page page = recorder.toPage();
+        if (page.bytes > maxBytes) {
+            return;
+        }
+        synchronized (pages) {
+            remove(recorder.key);
+            pages.put(recorder.key, page);
+            bytes += page.bytes;
+            Vary vary = varyHeaders.get(recorder.uri);
+            if (vary == null) {
+                varyHeaders.put(recorder.uri, vary = new Vary(recorder.cachePage.vary()));
+            }
+            vary.pages++;
+            Iterator<Page> eldest = pages.values().iterator();
+            while (bytes > maxBytes) {
+                Page evicted = eldest.next();
+                eldest.remove();
+                removed(evicted);
+            }
+        }
+    }
+
+    /**
+     * Removes pages with paths that start with a prefix.
+     *
+     * @param pathPrefix prefix of path, such as "/books". Empty string removes all pages.
+     */
+    void purge(String pathPrefix) {
+        synchronized (pages) {
+            Iterator<Map.Entry<String, Page>> entries = pages.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<String, Page> entry = entries.next();
+                if (entry.getKey().startsWith(pathPrefix)) {
+                    entries.remove();
+                    removed(entry.getValue());
+                }
+            }
+        }
+    }
+
+    long getBytes() {
+        synchronized (pages) {
+            return bytes;
+        }
+    }
+
+    int getUriCount() {
+        synchronized (pages) {
+            return varyHeaders.size();
+        }
+    }
+
+    private void remove(String key) {
+        Page removed = pages.remove(key);
+        if (removed != null) {
+            removed(removed);
+        }
+    }
+
+    private void removed(Page page) {
+        bytes -= page.bytes;
+        Vary vary = varyHeaders.get(page.uri);
+        if (--vary.pages == 0) {
+            varyHeaders.remove(page.uri);
+        }
+    }
+
+    /**
+     * @return true if a response to a request can be specific to a user, such a response is neither kept nor sent
+     * from cache.
+     */
+    private static boolean userSpecific(HttpServletRequest request) {
+        return request.getSession(false) != null || request.getHeader("Cookie") != null
+                || request.getHeader("Authorization") != null;
+    }
+
+    private static String uri(HttpServletRequest request, String path) {
+        String query = request.getQueryString();
+        return query == null ? path : path + '?' + query;
+    }
+
+    private static String key(String uri, String[] vary, HttpServletRequest request) {
+        if (vary.length == 0) {
+            return uri;
+        }
+        StringBuilder key = new StringBuilder(uri);
+        for (String header : vary) {
+            String value = request.getHeader(header);
+            key.append('|').append(value == null ? "" : value);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Headers which a page of a URI varies on, and number of pages of the URI in cache.
+     */
+    private static class Vary {
+        private final String[] headers;
+        private int pages;
+
+        Vary(String[] headers) {
+            this.headers = headers;
+        }
+    }
+
+    private static class Page {
+        private final String uri;
+        private final int status;
+        private final String contentType;
+        private final List<String> headers; // name, value, name, value...
+        private final byte[] body;
+        private final long bytes;
+        private final AtomicLong refreshAt;
+
+        Page(String uri, int status, String contentType, List<String> headers, byte[] body, long expiresAt) {
+            this.uri = uri;
+            this.status = status;
+            this.contentType = contentType;
+            this.headers = headers;
+            this.body = body;
+            this.refreshAt = new AtomicLong(expiresAt);
+            long size = body.length;
+            for (String header : headers) {
+                size += header.length() * 2L;
+            }
+            this.bytes = size;
+        }
+
+        void writeTo(HttpServletResponse response) throws IOException {
+            response.setStatus(status);
+            if (contentType != null) {
+                response.setContentType(contentType);
+            }
+            for (int i = 0; i < headers.size(); i += 2) {
+                response.addHeader(headers.get(i), headers.get(i + 1));
+            }
+            response.setContentLength(body.length);
+            response.getOutputStream().write(body);
+        }
+    }
+
+    /**
+     * Response which sends everything written to it to a client, and keeps a copy.
+     */
+    class Recorder extends HttpServletResponseWrapper {
+        private final HttpServletRequest request;
+        private final String uri, key;
+        private final CachePage cachePage;
+        private ByteArrayOutputStream bytes;
+        private CharArrayWriter chars;
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+        private boolean overflow;
+
+        Recorder(HttpServletRequest request, HttpServletResponse response, String uri, CachePage cachePage, String key) {
+            super(response);
+            this.request = request;
+            this.uri = uri;
+            this.cachePage = cachePage;
+            this.key = key;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                final ServletOutputStream target = super.getOutputStream();
+                bytes = new ByteArrayOutputStream();
+                outputStream = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        target.write(b);
+                        if (fits(1)) {
+                            bytes.write(b);
+                        }
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        target.write(b, off, len);
+                        if (fits(len)) {
+                            bytes.write(b, off, len);
+                        }
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        target.flush();
+                    }
+                };
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                final PrintWriter target = super.getWriter();
+                chars = new CharArrayWriter();
+                writer = new PrintWriter(new Writer() {
+                    @Override
+                    public void write(char[] cbuf, int off, int len) throws IOException {
+                        target.write(cbuf, off, len);
+                        if (fits(len * 2)) {
+                            chars.write(cbuf, off, len);
+                        }
+                    }
+
+                    @Override
+                    public void write(String str, int off, int len) throws IOException {
+                        target.write(str, off, len);
+                        if (fits(len * 2)) {
+                            chars.write(str, off, len);
+                        }
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        target.flush();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        target.close();
+                    }
+                });
+            }
+            return writer;
+        }
+
+        private boolean fits(long length) {
+            if (!overflow) {
+                long size = (bytes == null ? 0 : bytes.size()) + (chars == null ? 0 : chars.size() * 2L);
+                overflow = size + length > maxBytes;
+            }
+            return !overflow;
+        }
+
+        Page toPage() {
+            if (writer != null) {
+                writer.flush();
+            }
+            byte[] body;
+            if (chars != null) {
+                String encoding = getCharacterEncoding();
+                body = new String(chars.toCharArray()).getBytes(Charset.forName(encoding == null ? "ISO-8859-1" : encoding));
+            } else {
+                body = bytes == null ? new byte[0] : bytes.toByteArray();
+            }
+            List<String> headers = new ArrayList<>();
+            for (String name : getHeaderNames()) {
+                if (!name.equalsIgnoreCase("Content-Type") && !name.equalsIgnoreCase("Content-Length")) {
+                    for (String value : getHeaders(name)) {
+                        headers.add(name);
+                        headers.add(value);
+                    }
+                }
+            }
+            return new Page(uri, getStatus(), getContentType(), headers, body,
+                    System.currentTimeMillis() + cachePage.ttl() * 1000L);
+        }
+    }
+}
@@ -16,17 +16,24 @@ limitations under the License.
 package org.javalite.activeweb;
 
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.CharArrayWriter;
 import java.util.Map;
 
 /**
  * @author Igor Polevoy
  */
 class RenderTemplateResponse extends ControllerResponse{
+    //buffers larger than this are not kept for next request of a thread
+    private static final int MAX_POOLED_BUFFER = 1024 * 1024;
+    private static final ThreadLocal<Buffer> BUFFER = new ThreadLocal<>();
+
     private Map values;
     private String template, format;
     private String layout = Configuration.getDefaultLayout();
     private TemplateManager templateManager;
     private boolean defaultLayout = true;
+    private boolean etag;
 
     /**
      * Constructs a response object for rendering pages. This can be used for regular responses.
@@ -69,6 +76,11 @@ class RenderTemplateResponse extends ControllerResponse{
         return values;
     }
 
+    @SuppressWarnings("unchecked") //controllers pass values as raw maps
+    private Map<String, Object> model() {
+        return values;
+    }
+
     public void setLayout(String layout) {
         this.layout = layout;
         this.defaultLayout = false; // in some bizarre cases, when  you need default_layout set manually inside action!
@@ -82,10 +94,29 @@ class RenderTemplateResponse extends ControllerResponse{
         this.templateManager = templateManager;
     }
 
+    /**
+     * Renders page into a buffer, to send <code>ETag</code> header with hash of the page, or status 304 if client
+     * already has the page. Applies to responses with status 200 and without <code>ETag</code> set by controller.
+     *
+     * @param etag true to generate a tag.
+     */
+    void setETag(boolean etag) {
+        this.etag = etag;
+    }
+
     @Override
     void doProcess() {
         try {
-            templateManager.merge(values, template, layout, format, RequestContext.getHttpResponse().getWriter());
+            String flushedLayout = RequestContext.getFlushedLayout();
+            HttpServletResponse response = RequestContext.getHttpResponse();
+            if (etag && flushedLayout == null && getStatus() == 200 && !response.containsHeader("ETag")) {
+                processWithETag(response);
+            } else if (flushedLayout != null) {
+                //head of a layout was sent before action, a page can only be rendered in the rest of it
+                templateManager.mergeAfterLayoutHead(model(), template, flushedLayout, format, RequestContext.getHttpResponse().getWriter());
+            } else {
+                templateManager.merge(model(), template, layout, format, RequestContext.getHttpResponse().getWriter());
+            }
         }
         catch (IllegalStateException | ViewException e){
             throw e;
@@ -95,6 +126,30 @@ class RenderTemplateResponse extends ControllerResponse{
         }
     }
 
+    private void processWithETag(HttpServletResponse response) throws Exception {
+        Buffer buffer = BUFFER.get();
+        if (buffer == null) {
+            buffer = new Buffer();
+        } else {
+            BUFFER.remove(); //a page rendered while this one is rendered, such as an error page, gets its own buffer
+        }
+        try {
+            templateManager.merge(model(), template, layout, format, buffer);
+            String tag = ETags.of(buffer.chars(), buffer.size());
+            response.setHeader("ETag", tag);
+            if (ETags.matches(RequestContext.getHttpRequest(), tag)) {
+                setStatus(304);
+            } else {
+                buffer.writeTo(response.getWriter());
+            }
+        } finally {
+            if (buffer.size() <= MAX_POOLED_BUFFER) {
+                buffer.reset();
+                BUFFER.set(buffer);
+            }
+        }
+    }
+
     @Override
     public String toString() {
         return "RenderTemplateResponse{" +
@@ -107,4 +162,14 @@ class RenderTemplateResponse extends ControllerResponse{
     public void setFormat(String format) {
         this.format = format;
     }
+
+    private static class Buffer extends CharArrayWriter {
+        Buffer() {
+            super(8192);
+        }
+
+        char[] chars() {
+            return buf;
+        }
+    }
 }
@@ -23,134 +23,184 @@ import java.util.Map;
 
 
 /**
+ * Keeps state of current request in a {@link RequestScope}, one per thread.
+ *
  * @author Igor Polevoy
  */
 class RequestContext {
 
-
-    private static ThreadLocal<HttpServletRequest> request = new ThreadLocal<>();
-    private static ThreadLocal<HttpServletResponse> response = new ThreadLocal<>();
-    private static ThreadLocal<FilterConfig> filterConfig = new ThreadLocal<>();
-    private static ThreadLocal<ControllerResponse> controllerResponse = new ThreadLocal<>();
-    private static ThreadLocal<AppContext> appContext = new ThreadLocal<>();
-    private static ThreadLocal<RequestVo> requestVo = new ThreadLocal<>();
-    private static ThreadLocal<String> format = new ThreadLocal<>();
-    private static ThreadLocal<String> encoding = new ThreadLocal<>();
-    private static ThreadLocal<Route> route = new ThreadLocal<>();
-    private static ThreadLocal<Map<String, Object>> values = new ThreadLocal<>();
+    private static ThreadLocal<RequestScope> scope = new ThreadLocal<RequestScope>() {
+        @Override
+        protected RequestScope initialValue() {
+            return new RequestScope();
+        }
+    };
 
     private RequestContext() {}
 
     static Map<String, Object> getValues() {
-        return values.get();
+        return scope.get().values;
     }
 
     static String getEncoding() {
-        return encoding.get();
+        return scope.get().encoding;
     }
 
     static void setEncoding(String encoding) {
-        RequestContext.encoding.set(encoding);
+        scope.get().encoding = encoding;
     }
 
     static String getFormat() {
-        return format.get();
+        return scope.get().format;
     }
 
     static void setFormat(String format) {
-        RequestContext.format.set(format);
+        scope.get().format = format;
     }
 
     static RequestVo getRequestVo() {
-        return requestVo.get();
+        return scope.get().requestVo;
     }
 
     static void setRequestVo(RequestVo requestVo) {
-        RequestContext.requestVo.set(requestVo);
+        scope.get().requestVo = requestVo;
     }
 
     static AppContext getAppContext() {
-        return appContext.get();
+        return scope.get().appContext;
     }
 
     static void setAppContext(AppContext appContext) {
-        RequestContext.appContext.set(appContext);
+        scope.get().appContext = appContext;
     }
 
 
     static void setHttpRequest(HttpServletRequest req){
-        request.set(req);
+        scope.get().request = req;
     }
 
     static HttpServletRequest getHttpRequest(){
-        return request.get();
+        return scope.get().request;
     }
 
-    static void setHttpResponse(HttpServletResponse resp){        
-        response.set(resp);
+    static void setHttpResponse(HttpServletResponse resp){
+        scope.get().response = resp;
     }
 
     static HttpServletResponse getHttpResponse(){
-        return response.get();
+        return scope.get().response;
     }
 
     static ControllerResponse getControllerResponse() {
-        return controllerResponse.get();
+        return scope.get().controllerResponse;
     }
 
     static void setControllerResponse(ControllerResponse resp) {
-        controllerResponse.set(resp);
+        scope.get().controllerResponse = resp;
     }
 
     static Route getRoute(){
-        return route.get();
+        return scope.get().route;
     }
 
 
     static FilterConfig getFilterConfig() {
-        return filterConfig.get();
+        return scope.get().filterConfig;
     }
 
     static void setFilterConfig(FilterConfig config) {
-        filterConfig.set(config);
+        scope.get().filterConfig = config;
+    }
+
+    /**
+     * @return layout whose head was sent before action was executed, null if nothing was sent.
+     */
+    static String getFlushedLayout() {
+        return scope.get().flushedLayout;
+    }
+
+    static void setFlushedLayout(String layout) {
+        scope.get().flushedLayout = layout;
+    }
+
+    static long getStartNanos() {
+        return scope.get().startNanos;
+    }
+
+    static void setStartNanos(long startNanos) {
+        scope.get().startNanos = startNanos;
+    }
+
+    /**
+     * Adds time spent in a phase of current request.
+     *
+     * @param phase phase of request processing
+     * @param nanos duration in nanoseconds
+     */
+    static void addPhaseNanos(RequestPhase phase, long nanos) {
+        scope.get().phaseNanos[phase.ordinal()] += nanos;
+    }
+
+    /**
+     * @return durations of phases of current request in nanoseconds, indexed by {@link RequestPhase#ordinal()}.
+     */
+    static long[] getPhaseNanos() {
+        return scope.get().phaseNanos;
     }
 
     static void setTLs(HttpServletRequest req, HttpServletResponse resp, FilterConfig conf, AppContext context,
                        RequestVo requestVo, String format) {
-        setHttpRequest(req);
-        setHttpResponse(resp);
-        setFilterConfig(conf);
-        setAppContext(context);
-        setRequestVo(requestVo);
-        setFormat(format);
+        RequestScope current = scope.get();
+        current.request = req;
+        current.response = resp;
+        current.filterConfig = conf;
+        current.appContext = context;
+        current.requestVo = requestVo;
+        current.format = format;
     }
 
     static void setRoute(Route route) throws InstantiationException, IllegalAccessException {
         if (route == null)
             throw new IllegalArgumentException("Route could not be null");
+        RequestScope current = scope.get();
         if (route.getId() != null){
-            getHttpRequest().setAttribute("id", route.getId());
+            current.request.setAttribute("id", route.getId());
+        }
+
+        if(!route.getUserSegments().isEmpty()){
+            current.requestVo.getUserSegments().putAll(route.getUserSegments());
         }
 
         if(route.isWildCard()){
-            requestVo.get().setWildCardName(route.getWildCardName());
-            requestVo.get().setWildCardValue(route.getWildCardValue());
+            current.requestVo.setWildCardName(route.getWildCardName());
+            current.requestVo.setWildCardValue(route.getWildCardValue());
         }
-        RequestContext.route.set(route);
-        RequestContext.values.set(new HashMap<String, Object>());
+        current.route = route;
+        current.values = new HashMap<>();
+    }
+
+    /**
+     * Removes state of current request from current thread, to continue processing of the request on another thread.
+     * Current thread gets a new empty scope.
+     *
+     * @return state of current request.
+     */
+    static RequestScope detach() {
+        RequestScope current = scope.get();
+        scope.set(new RequestScope());
+        return current;
+    }
 
+    /**
+     * Sets state of a request to current thread.
+     *
+     * @param requestScope state returned by {@link #detach()}.
+     */
+    static void attach(RequestScope requestScope) {
+        scope.set(requestScope);
     }
 
     static void clear() {
-        request.set(null);
-        response.set(null);
-        controllerResponse.set(null);
-        route.set(null);
-        filterConfig.set(null);
-        requestVo.set(null);
-        format.set(null);
-        encoding.set(null);
-        appContext.set(null);
-        values.set(null);
+        scope.get().reset();
     }
 }
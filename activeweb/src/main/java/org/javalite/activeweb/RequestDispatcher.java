@@ -17,7 +17,6 @@ package org.javalite.activeweb;
 
 import org.javalite.activejdbc.DB;
 
-import org.javalite.common.JsonHelper;
 import org.javalite.common.Util;
 import org.javalite.logging.Context;
 import org.slf4j.Logger;
@@ -29,7 +28,10 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.sql.Connection;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.javalite.activeweb.Configuration.getDefaultLayout;
 import static org.javalite.activeweb.Configuration.useDefaultLayoutForErrors;
@@ -46,8 +48,11 @@ public class RequestDispatcher implements Filter {
     private AppContext appContext;
     private Bootstrap appBootstrap;
     private String encoding;
-
-    private static ThreadLocal<Long> time = new ThreadLocal<>();
+    private volatile Router router;
+    private long routeConfigTimestamp;
+    private ExecutorService executor;
+    private AccessLog accessLog;
+    private final ErrorPages errorPages = new ErrorPages();
 
     public void init(FilterConfig filterConfig) throws ServletException {
         this.filterConfig = filterConfig;
@@ -65,10 +70,49 @@ public class RequestDispatcher implements Filter {
             }
         }
         initApp(appContext);
+        initRouter();
+        Configuration.getTemplateManager().warmUp();
         encoding = filterConfig.getInitParameter("encoding");
+        initAccessLog();
+        //requires async-supported for the filter in web.xml
+        if ("true".equals(filterConfig.getInitParameter("virtual_threads"))) {
+            executor = VirtualThreads.newExecutor();
+        }
+        RequestMetrics.registerMBean(filterConfig.getServletContext().getContextPath());
         logger.info("ActiveWeb: starting the app in environment: " + Configuration.getEnv());
     }
 
+    /**
+     * Access log is written on request threads, unless init parameter "access_log" is "async". Parameter
+     * "access_log_buffer_size" is a number of records kept for a background thread, 8192 by default. Parameter
+     * "access_log_sample_rate" is a share of successful requests to log, greater than 0 and at most 1.
+     *
+     * @throws InitException if a parameter is out of range.
+     */
+    private void initAccessLog() {
+        int bufferSize = 0;
+        if ("async".equals(filterConfig.getInitParameter("access_log"))) {
+            String value = filterConfig.getInitParameter("access_log_buffer_size");
+            try {
+                bufferSize = value == null ? 8192 : Integer.parseInt(value.trim());
+            } catch (NumberFormatException ignore) {}
+            if (bufferSize <= 0) {
+                throw new InitException("Init parameter 'access_log_buffer_size' must be a number greater than 0, "
+                        + "but it is: '" + value + "'");
+            }
+        }
+        String value = filterConfig.getInitParameter("access_log_sample_rate");
+        double sampleRate = Double.NaN;
+        try {
+            sampleRate = value == null ? 1 : Double.parseDouble(value.trim());
+        } catch (NumberFormatException ignore) {}
+        if (!(sampleRate > 0 && sampleRate <= 1)) {
+            throw new InitException("Init parameter 'access_log_sample_rate' must be a number greater than 0 "
+                    + "and at most 1, but it is: '" + value + "'");
+        }
+        accessLog = new AccessLog(bufferSize, sampleRate);
+    }
+
     protected void initApp(AppContext context){
         initAppConfig(Configuration.getBootstrapClassName(), context, true);
         //these are optional config classes:
@@ -80,15 +124,58 @@ public class RequestDispatcher implements Filter {
         return appContext;
     }
 
+    //this exists for testing only
+    void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
     //this exists for testing only
     private AbstractRouteConfig routeConfigTest;
     private boolean testMode;
     protected void setRouteConfig(AbstractRouteConfig routeConfig) {
         this.routeConfigTest = routeConfig;
         testMode = true;
+        router = null; // will be rebuilt with the new config on next request
+    }
+
+    /**
+     * Builds a route table once, when the filter starts. If route configuration is broken, the filter still starts,
+     * and the error is reported to the client on every request, until the configuration is fixed.
+     */
+    private void initRouter() {
+        try {
+            router = buildRouter();
+        } catch (IllegalArgumentException | ConfigurationException e) {
+            router = null;
+            logger.error("Failed to load routes from: " + Configuration.getRouteConfigClassName(), e);
+        }
+    }
+
+    /**
+     * Returns a router built at startup. The router is rebuilt only if it failed to build before, or if
+     * the source file of a route config class has changed in active reload mode.
+     *
+     * @return current router.
+     */
+    private Router getRouter() {
+        Router current = router;
+        if (current == null || routeConfigChanged()) {
+            synchronized (this) {
+                current = router;
+                if (current == null || routeConfigChanged()) {
+                    current = router = buildRouter();
+                }
+            }
+        }
+        return current;
+    }
+
+    private boolean routeConfigChanged() {
+        return Configuration.activeReload() && !testMode
+                && routeConfigTimestamp != DynamicClassFactory.getSourceFile(Configuration.getRouteConfigClassName()).lastModified();
     }
 
-    private Router getRouter(AppContext context){
+    private Router buildRouter() {
         String routeConfigClassName = Configuration.getRouteConfigClassName();
         Router router = new Router(filterConfig.getInitParameter("root_controller"));
         AbstractRouteConfig routeConfigLocal;
@@ -96,11 +183,14 @@ public class RequestDispatcher implements Filter {
             if(testMode){
                 routeConfigLocal = routeConfigTest;
             }else{
+                if (Configuration.activeReload()) {
+                    routeConfigTimestamp = DynamicClassFactory.getSourceFile(routeConfigClassName).lastModified();
+                }
                 Class configClass = DynamicClassFactory.getCompiledClass(routeConfigClassName);
                 routeConfigLocal = (AbstractRouteConfig) configClass.newInstance();
             }
             routeConfigLocal.clear();
-            routeConfigLocal.init(context);
+            routeConfigLocal.init(appContext);
             router.setRoutes(routeConfigLocal.getRoutes());
             router.setIgnoreSpecs(routeConfigLocal.getIgnoreSpecs());
 
@@ -156,7 +246,7 @@ public class RequestDispatcher implements Filter {
     public void doFilter(ServletRequest req, ServletResponse resp, FilterChain chain) throws IOException, ServletException {
         try {
 
-            time.set(System.currentTimeMillis());
+            RequestContext.setStartNanos(System.nanoTime());
 
             HttpServletRequest request = (HttpServletRequest) req;
             HttpServletResponse response = (HttpServletResponse) resp;
@@ -175,6 +265,12 @@ public class RequestDispatcher implements Filter {
                 return;
             }
 
+            if ("GET".equals(request.getMethod()) && Configuration.getPageCache().send(request, response, path)) {
+                accessLog.log(request, response.getStatus(), null, null, null,
+                        (System.nanoTime() - RequestContext.getStartNanos()) / 1000000);
+                return;
+            }
+
             String format = null;
             String uri;
             if(path.contains(".")){
@@ -189,8 +285,9 @@ public class RequestDispatcher implements Filter {
                 uri = "/";//different servlet implementations, damn.
             }
 
-            Router router = getRouter(appContext);
-            Route route = router.recognize(uri, HttpMethod.getMethod(request));
+            long routeStart = System.nanoTime();
+            Route route = getRouter().recognize(uri, HttpMethod.getMethod(request));
+            RequestContext.addPhaseNanos(RequestPhase.ROUTE, System.nanoTime() - routeStart);
 
             if(route != null && route.ignores(path)){
                 chain.doFilter(req, resp);
@@ -206,29 +303,193 @@ public class RequestDispatcher implements Filter {
                             + "\",\"method\":\""     + route.getMethod()
                             + "\"}");
                 }
-                runner.run(route);
-                logDone(null);
+                PageCache.Recorder recorder = recordPage(request, response, path, route);
+                if (executor != null && request.isAsyncSupported()) {
+                    runOnExecutor(request, route, recorder);
+                } else {
+                    AsyncAction asyncAction = runner.run(route);
+                    if (asyncAction != null) {
+                        startAsync(request, route, asyncAction, recorder);
+                    } else {
+                        logDone(null);
+                        storePage(recorder);
+                    }
+                }
             } else {
                 //TODO: theoretically this will never happen, because if the route was not excluded, the router.recognize() would throw some kind
                 // of exception, leading to the a system error page.
                 logger.warn("No matching route for servlet path: " + request.getServletPath() + ", passing down to container.");
                 chain.doFilter(req, resp);//let it fall through
             }
-        } catch (CompilationException e) {
+        } catch (Throwable e) {
+            renderException(e);
+        }finally {
+            clear();
+        }
+    }
+
+    /**
+     * Records response of an action marked with {@link org.javalite.activeweb.annotations.CachePage}.
+     *
+     * @return recorder which replaced response in request context, null if response is not recorded.
+     */
+    private PageCache.Recorder recordPage(HttpServletRequest request, HttpServletResponse response, String path, Route route) {
+        ControllerMetadata metadata = ControllerMetadata.of(route.getController().getClass());
+        PageCache.Recorder recorder = Configuration.getPageCache().record(request, response, path,
+                metadata.getCachePage(metadata.getActionMethodName(route.getActionName())));
+        if (recorder != null) {
+            RequestContext.setHttpResponse(recorder);
+        }
+        return recorder;
+    }
+
+    private void storePage(PageCache.Recorder recorder) {
+        if (recorder != null) {
+            Configuration.getPageCache().store(recorder);
+        }
+    }
+
+    /**
+     * Releases container thread while an asynchronous action is in progress. When the action completes, the request
+     * is completed on a container thread, with state of the request and DB connections moved there. The thread which
+     * completes the action is often busy with another request, or belongs to a pool of an application.
+     */
+    private void startAsync(HttpServletRequest request, final Route route, final AsyncAction asyncAction,
+                            final PageCache.Recorder recorder) {
+        final AsyncContext asyncContext = request.startAsync(request, RequestContext.getHttpResponse());
+        final RequestScope requestScope = RequestContext.detach();
+        final Map<String, Connection> connections = detachConnections();
+        asyncAction.onComplete(new Runnable() {
+            @Override
+            public void run() {
+                asyncContext.start(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            runAttached(requestScope, connections, new Runnable() {
+                                @Override
+                                public void run() {
+                                    try {
+                                        runner.resume(route, asyncAction);
+                                        logDone(null);
+                                        storePage(recorder);
+                                    } catch (Throwable e) {
+                                        renderException(e);
+                                    }
+                                }
+                            });
+                        } finally {
+                            asyncContext.complete();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Runs part of a request on current thread with state of the request and its DB connections, and then clears
+     * them. Some containers run tasks of {@link AsyncContext#start(Runnable)} on a thread which is processing another
+     * request: its state and connections are put aside, and restored afterwards. Only connections of this request are
+     * closed.
+     */
+    private void runAttached(RequestScope requestScope, Map<String, Connection> connections, Runnable task) {
+        RequestScope previousScope = RequestContext.detach();
+        Map<String, Connection> previousConnections = detachConnections();
+        try {
+            RequestContext.attach(requestScope);
+            attachConnections(connections);
+            task.run();
+        } finally {
+            //logging context cannot be put aside, it is kept if it belongs to another request
+            clear(previousScope.request == null);
+            RequestContext.attach(previousScope);
+            attachConnections(previousConnections);
+        }
+    }
+
+    /**
+     * Releases container thread and runs filters, controller and rendering on a thread of executor, usually a virtual
+     * thread, which is cheap to block on JDBC calls. State of the request and DB connections are moved to that thread.
+     * An asynchronous action is waited for on the same thread.
+     */
+    private void runOnExecutor(HttpServletRequest request, final Route route, final PageCache.Recorder recorder) {
+        final AsyncContext asyncContext = request.startAsync(request, RequestContext.getHttpResponse());
+        final RequestScope requestScope = RequestContext.detach();
+        final Map<String, Connection> connections = detachConnections();
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    RequestContext.attach(requestScope);
+                    attachConnections(connections);
+                    try {
+                        AsyncAction asyncAction = runner.run(route);
+                        if (asyncAction != null) {
+                            asyncAction.await();
+                            runner.resume(route, asyncAction);
+                        }
+                        logDone(null);
+                        storePage(recorder);
+                    } catch (Throwable e) {
+                        renderException(e);
+                    }
+                } finally {
+                    clear();
+                    asyncContext.complete();
+                }
+            }
+        };
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) { // filter is being destroyed
+            task.run();
+        }
+    }
+
+    private Map<String, Connection> detachConnections() {
+        Map<String, Connection> connections = new HashMap<>(DB.connections());
+        for (String name : connections.keySet()) {
+            new DB(name).detach();
+        }
+        return connections;
+    }
+
+    private void attachConnections(Map<String, Connection> connections) {
+        for (Map.Entry<String, Connection> entry : connections.entrySet()) {
+            new DB(entry.getKey()).attach(entry.getValue());
+        }
+    }
+
+    private void renderException(Throwable e) {
+        if (e instanceof CompilationException) {
             renderSystemError(e);
-        } catch (ClassLoadException | ActionNotFoundException | ViewMissingException | RouteException e) {
+        } else if (e instanceof ClassLoadException || e instanceof ActionNotFoundException
+                || e instanceof ViewMissingException || e instanceof RouteException) {
             renderSystemError("/system/404", useDefaultLayoutForErrors() ? getDefaultLayout():null, 404, e);
-        } catch (Throwable e) {
+        } else {
             renderSystemError("/system/error", useDefaultLayoutForErrors() ? getDefaultLayout():null, 500, e);
-        }finally {
-            RequestContext.clear();
+        }
+    }
+
+    private void clear() {
+        clear(true);
+    }
+
+    private void clear(boolean clearLoggingContext) {
+        Route route = RequestContext.getRoute();
+        if (route != null && RequestMetrics.isEnabled()) {
+            RequestMetrics.record(route, RequestContext.getPhaseNanos(), System.nanoTime() - RequestContext.getStartNanos());
+        }
+        RequestContext.clear();
+        if (clearLoggingContext) {
             Context.clear();
-            List<String> connectionsRemaining = DB.getCurrrentConnectionNames();
-            if(!connectionsRemaining.isEmpty()){
-                logger.warn("CONNECTION LEAK DETECTED ... and AVERTED!!! You left connections opened:"
-                        + connectionsRemaining + ". ActiveWeb is closing all active connections for you...");
-                DB.closeAllConnections();
-            }
+        }
+        List<String> connectionsRemaining = DB.getCurrrentConnectionNames();
+        if(!connectionsRemaining.isEmpty()){
+            logger.warn("CONNECTION LEAK DETECTED ... and AVERTED!!! You left connections opened:"
+                    + connectionsRemaining + ". ActiveWeb is closing all active connections for you...");
+            DB.closeAllConnections();
         }
     }
 
@@ -263,11 +524,12 @@ public class RequestDispatcher implements Filter {
 
             logDone(e);
 
-            HttpServletRequest req = RequestContext.getHttpRequest();
-            String requestedWith = req.getHeader("x-requested-with") == null ?
-                    req.getHeader("X-Requested-With") : req.getHeader("x-requested-with");
-
-            if (requestedWith != null && requestedWith.equalsIgnoreCase("XMLHttpRequest")) {
+            if (RequestContext.getFlushedLayout() != null) {
+                //head of a layout was sent with status 200, error is rendered in the rest of the layout
+                renderErrorTemplate(template, layout, status, e);
+            } else if (Configuration.productionErrors()) {
+                renderProductionError(template, layout, status, e);
+            } else if (isXhr()) {
                 try {
 
                     RequestContext.getHttpResponse().getWriter().write(Util.getStackTraceString(e));
@@ -275,13 +537,7 @@ public class RequestDispatcher implements Filter {
                     logger.error("Failed to send error response to client", ex);
                 }
             } else {
-                RenderTemplateResponse resp = new RenderTemplateResponse(getMapWithExceptionDataAndSession(e), template, null);
-                resp.setLayout(layout);
-                resp.setContentType("text/html");
-                resp.setStatus(status);
-                resp.setTemplateManager(Configuration.getTemplateManager());
-                ParamCopy.copyInto(resp.values());
-                resp.process();
+                renderErrorTemplate(template, layout, status, e);
             }
         }catch(Throwable t){
 
@@ -298,71 +554,61 @@ public class RequestDispatcher implements Filter {
         }
     }
 
-    private void logDone(Throwable throwable) {
-        long millis = System.currentTimeMillis() - time.get();
-        int status = RequestContext.getHttpResponse().getStatus();
-        Route route = RequestContext.getRoute();
-        String controller = route == null ? "" : route.getControllerClassName();
-        String action = route == null ? "" : route.getActionName();
-        String method = RequestContext.getHttpRequest().getMethod();
-        String url = RequestContext.getHttpRequest().getRequestURL().toString();
-
-        ControllerResponse cr = RequestContext.getControllerResponse();
-
-        String redirectTarget = null;
-        if(cr instanceof RedirectResponse){
-            RedirectResponse rr = (RedirectResponse) cr;
-            redirectTarget = rr.redirectValue();
-        }
-
-        Map<String, Object> log = map(
-                "controller", controller,
-                "action", action,
-                "duration_millis", millis,
-                "method", method,
-                "url", url,
-                "remote_ip", getRemoteIP(),
-                "status", status);
-
-        if (redirectTarget != null) {
-            log.put("redirect_target", redirectTarget);
-        }
-
-        if (throwable != null) {
-            log.put("error", JsonHelper.sanitize(throwable.getMessage() != null ? throwable.getMessage() : throwable.toString()));
-        }
-
-        addRequestHeaders(log);
+    private boolean isXhr() {
+        HttpServletRequest req = RequestContext.getHttpRequest();
+        String requestedWith = req.getHeader("x-requested-with") == null ?
+                req.getHeader("X-Requested-With") : req.getHeader("x-requested-with");
+        return requestedWith != null && requestedWith.equalsIgnoreCase("XMLHttpRequest");
+    }
 
-        if(throwable != null && status >= 500){
-            logger.error(JsonHelper.toJsonString(log), throwable);
-        }else {
-            logger.info(JsonHelper.toJsonString(log));
-        }
+    private void renderErrorTemplate(String template, String layout, int status, Throwable e) {
+        RenderTemplateResponse resp = new RenderTemplateResponse(getMapWithExceptionDataAndSession(e), template, null);
+        resp.setLayout(layout);
+        resp.setContentType("text/html");
+        resp.setStatus(status);
+        resp.setTemplateManager(Configuration.getTemplateManager());
+        ParamCopy.copyInto(resp.values());
+        resp.process();
     }
 
-    private void addRequestHeaders(Map<String, Object> log) {
-        List<String> logHeaders = Configuration.getLogHeaders();
-        Enumeration<String> requestHeaders = RequestContext.getHttpRequest().getHeaderNames();
-        Map<String, String> headersMap = null;
-        while (requestHeaders.hasMoreElements()) {
-            String header = requestHeaders.nextElement();
-            if(logHeaders.contains(header)){
-                if(headersMap == null){
-                    headersMap = new HashMap<>();
-                    log.put("headers", headersMap);
-                }
-                headersMap.put(header, JsonHelper.sanitize(RequestContext.getHttpRequest().getHeader(header)));
-            }
+    /**
+     * Not found pages are rendered once and sent from memory, other error pages are rendered up to a limit per
+     * second. Neither builds a stack trace or copies the session.
+     */
+    private void renderProductionError(String template, String layout, int status, Throwable e) throws IOException {
+        HttpServletResponse response = RequestContext.getHttpResponse();
+        if (isXhr()) {
+            response.setContentType("text/plain");
+            response.getWriter().write(status == 404 ? "Not Found" : "Internal Error");
+        } else if (status == 404) {
+            response.setContentType("text/html");
+            response.getWriter().write(errorPages.notFoundPage(template, layout, Configuration.getTemplateManager(),
+                    RequestContext.getHttpRequest().getContextPath()));
+        } else if (errorPages.tryRender()) {
+            renderErrorTemplate(template, layout, status, e);
+        } else {
+            response.setContentType("text/html");
+            response.getWriter().write(ErrorPages.INTERNAL_ERROR);
         }
     }
 
-    private String getRemoteIP() {
-        String h = RequestContext.getHttpRequest().getHeader("X-Forwarded-For");
-        return !Util.blank(h) ? h : RequestContext.getHttpRequest().getRemoteAddr();
+    private void logDone(Throwable throwable) {
+        accessLog.log(RequestContext.getHttpRequest(), RequestContext.getHttpResponse().getStatus(),
+                RequestContext.getRoute(), RequestContext.getControllerResponse(), throwable,
+                (System.nanoTime() - RequestContext.getStartNanos()) / 1000000);
     }
 
     public void destroy() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+        if (accessLog != null) { // failed start?
+            accessLog.close();
+        }
+        if (Configuration.activeReload()) {
+            DynamicCompiler.closeInstance();
+        }
+        RequestMetrics.unregisterMBean(filterConfig.getServletContext().getContextPath());
         if(appBootstrap != null){ // failed start?
             appBootstrap.destroy(appContext);
         }
@@ -0,0 +1,225 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package org.javalite.activeweb;
+
+import org.javalite.activeweb.freemarker.FreeMarkerTemplateManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Durations of request processing phases per controller action, collected by {@link RequestDispatcher}. Use
+ * {@link #getActionMetrics()} to read them in the application, or JMX, see {@link RequestMetricsMXBean}.
+ * Only requests to existing actions are counted, so that requests to random URIs do not fill memory.
+ * <p></p>
+ * Collection is off by default, switch it on with {@link #setEnabled(boolean)}, for instance in
+ * <code>AppBootstrap</code>.
+ *
+ * @author Igor Polevoy
+ */
+public final class RequestMetrics {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestMetrics.class);
+
+    private static volatile boolean enabled;
+    //keyed by controller class name, then by action name, to avoid building a key on every request
+    private static final ConcurrentHashMap<String, ConcurrentHashMap<String, ActionMetrics>> metrics = new ConcurrentHashMap<>();
+
+    private RequestMetrics() {}
+
+    /**
+     * @param enabled true to collect metrics, collection is disabled by default.
+     */
+    public static void setEnabled(boolean enabled) {
+        RequestMetrics.enabled = enabled;
+    }
+
+    static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return metrics keyed by <code>controller class name#action</code>, sorted by key.
+     */
+    public static Map<String, ActionMetrics> getActionMetrics() {
+        Map<String, ActionMetrics> result = new TreeMap<>();
+        for (Map.Entry<String, ConcurrentHashMap<String, ActionMetrics>> controller : metrics.entrySet()) {
+            for (Map.Entry<String, ActionMetrics> action : controller.getValue().entrySet()) {
+                result.put(controller.getKey() + "#" + action.getKey(), action.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Clears collected metrics.
+     */
+    public static void reset() {
+        for (ConcurrentHashMap<String, ActionMetrics> actions : metrics.values()) {
+            for (ActionMetrics actionMetrics : actions.values()) {
+                actionMetrics.reset();
+            }
+        }
+    }
+
+    static void record(Route route, long[] phaseNanos, long totalNanos) {
+        if (!enabled) {
+            return;
+        }
+        Class<? extends AppController> controllerClass = route.getController().getClass();
+        String actionName = route.getActionName();
+        ConcurrentHashMap<String, ActionMetrics> actions = metrics.get(controllerClass.getName());
+        ActionMetrics actionMetrics = actions == null || actionName == null ? null : actions.get(actionName);
+        if (actionMetrics == null) {
+            if (actionName == null || !isAction(controllerClass, actionName)) {
+                return;
+            }
+            if (actions == null) {
+                actions = new ConcurrentHashMap<>();
+                ConcurrentHashMap<String, ActionMetrics> existing = metrics.putIfAbsent(controllerClass.getName(), actions);
+                if (existing != null) {
+                    actions = existing;
+                }
+            }
+            actionMetrics = new ActionMetrics();
+            ActionMetrics existing = actions.putIfAbsent(actionName, actionMetrics);
+            if (existing != null) {
+                actionMetrics = existing;
+            }
+        }
+        actionMetrics.record(phaseNanos, totalNanos);
+    }
+
+    private static boolean isAction(Class<? extends AppController> controllerClass, String actionName) {
+        ControllerMetadata controllerMetadata = ControllerMetadata.of(controllerClass);
+        return controllerMetadata.getActionMethod(controllerMetadata.getActionMethodName(actionName)) != null;
+    }
+
+    static ObjectName objectName(String contextPath) throws JMException {
+        return new ObjectName("org.javalite.activeweb:type=RequestMetrics,context=" + ObjectName.quote(contextPath));
+    }
+
+    static void registerMBean(String contextPath) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = objectName(contextPath);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new Bean(), name);
+            }
+        } catch (JMException e) {
+            LOGGER.warn("Failed to register request metrics with JMX", e);
+        }
+    }
+
+    static void unregisterMBean(String contextPath) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = objectName(contextPath);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            LOGGER.warn("Failed to unregister request metrics from JMX", e);
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1000000.0;
+    }
+
+    private static class Bean implements RequestMetricsMXBean {
+        @Override
+        public String[] getActions() {
+            return getActionMetrics().keySet().toArray(new String[0]);
+        }
+
+        @Override
+        public Map<String, Double> getP99Millis() {
+            Map<String, Double> result = new TreeMap<>();
+            for (Map.Entry<String, ActionMetrics> entry : getActionMetrics().entrySet()) {
+                result.put(entry.getKey(), millis(entry.getValue().get(RequestPhase.TOTAL).getValueAtPercentile(99)));
+            }
+            return result;
+        }
+
+        @Override
+        public long getCount(String action) {
+            ActionMetrics actionMetrics = getActionMetrics().get(action);
+            return actionMetrics == null ? 0 : actionMetrics.get(RequestPhase.TOTAL).getCount();
+        }
+
+        @Override
+        public double getPercentileMillis(String action, String phase, double percentile) {
+            ActionMetrics actionMetrics = getActionMetrics().get(action);
+            return actionMetrics == null ? 0
+                    : millis(actionMetrics.get(RequestPhase.valueOf(phase.toUpperCase())).getValueAtPercentile(percentile));
+        }
+
+        @Override
+        public long getTemplateCacheHits() {
+            TemplateManager templateManager = Configuration.getTemplateManager();
+            return templateManager instanceof FreeMarkerTemplateManager
+                    ? ((FreeMarkerTemplateManager) templateManager).getTemplateCacheHits() : 0;
+        }
+
+        @Override
+        public long getTemplateCacheMisses() {
+            TemplateManager templateManager = Configuration.getTemplateManager();
+            return templateManager instanceof FreeMarkerTemplateManager
+                    ? ((FreeMarkerTemplateManager) templateManager).getTemplateCacheMisses() : 0;
+        }
+
+        @Override
+        public long getInlineTemplateCacheHits() {
+            TemplateManager templateManager = Configuration.getTemplateManager();
+            return templateManager instanceof FreeMarkerTemplateManager
+                    ? ((FreeMarkerTemplateManager) templateManager).getInlineTemplateCacheHits() : 0;
+        }
+
+        @Override
+        public long getInlineTemplateCacheMisses() {
+            TemplateManager templateManager = Configuration.getTemplateManager();
+            return templateManager instanceof FreeMarkerTemplateManager
+                    ? ((FreeMarkerTemplateManager) templateManager).getInlineTemplateCacheMisses() : 0;
+        }
+
+        @Override
+        public long getFragmentCacheHits() {
+            TemplateManager templateManager = Configuration.getTemplateManager();
+            return templateManager instanceof FreeMarkerTemplateManager
+                    ? ((FreeMarkerTemplateManager) templateManager).getFragmentCacheHits() : 0;
+        }
+
+        @Override
+        public long getFragmentCacheMisses() {
+            TemplateManager templateManager = Configuration.getTemplateManager();
+            return templateManager instanceof FreeMarkerTemplateManager
+                    ? ((FreeMarkerTemplateManager) templateManager).getFragmentCacheMisses() : 0;
+        }
+
+        @Override
+        public void reset() {
+            RequestMetrics.reset();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package org.javalite.activeweb;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link RequestMetrics}, registered by {@link RequestDispatcher} as
+ * <code>org.javalite.activeweb:type=RequestMetrics,context=&lt;context path&gt;</code>.
+ * Actions are named as <code>controller class name#action</code>.
+ *
+ * @author Igor Polevoy
+ */
+public interface RequestMetricsMXBean {
+
+    /**
+     * @return names of actions which served requests.
+     */
+    String[] getActions();
+
+    /**
+     * @return 99th percentile of total request duration in milliseconds per action.
+     */
+    Map<String, Double> getP99Millis();
+
+    /**
+     * @param action name of action, as returned by {@link #getActions()}.
+     * @return number of requests to the action.
+     */
+    long getCount(String action);
+
+    /**
+     * @param action name of action, as returned by {@link #getActions()}.
+     * @param phase name of {@link RequestPhase}, such as "ACTION" or "TOTAL".
+     * @param percentile percentile, such as 99 or 99.9.
+     * @return duration in milliseconds.
+     */
+    double getPercentileMillis(String action, String phase, double percentile);
+
+    /**
+     * @return number of times a template was found in FreeMarker template cache.
+     */
+    long getTemplateCacheHits();
+
+    /**
+     * @return number of times a template was not in FreeMarker template cache and was loaded.
+     */
+    long getTemplateCacheMisses();
+
+    /**
+     * @return number of times text processed by a tag was found in cache of parsed templates.
+     */
+    long getInlineTemplateCacheHits();
+
+    /**
+     * @return number of times text processed by a tag was not in cache of parsed templates and was parsed.
+     */
+    long getInlineTemplateCacheMisses();
+
+    /**
+     * @return number of times output of a <code>&lt;@cache&gt;</code> tag was found in cache.
+     */
+    long getFragmentCacheHits();
+
+    /**
+     * @return number of times output of a <code>&lt;@cache&gt;</code> tag was not in cache and was rendered.
+     */
+    long getFragmentCacheMisses();
+
+    /**
+     * Clears collected data.
+     */
+    void reset();
+}
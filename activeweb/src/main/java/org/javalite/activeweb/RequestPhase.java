@@ -0,0 +1,48 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package org.javalite.activeweb;
+
+/**
+ * Phases of request processing timed by {@link RequestMetrics}.
+ *
+ * @author Igor Polevoy
+ */
+public enum RequestPhase {
+    /**
+     * Recognition of a route.
+     */
+    ROUTE,
+    /**
+     * <code>before()</code> methods of filters.
+     */
+    BEFORE_FILTERS,
+    /**
+     * Action of a controller, including continuation of asynchronous action.
+     */
+    ACTION,
+    /**
+     * Rendering of response.
+     */
+    RENDER,
+    /**
+     * <code>after()</code> methods of filters.
+     */
+    AFTER_FILTERS,
+    /**
+     * Whole request, from the moment the request entered ActiveWeb, including time waiting for asynchronous action.
+     */
+    TOTAL
+}
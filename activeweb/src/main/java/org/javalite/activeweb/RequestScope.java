@@ -0,0 +1,61 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package org.javalite.activeweb;
+
+import javax.servlet.FilterConfig;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * State of a request being processed. One instance is kept per thread by {@link RequestContext} and reused for
+ * following requests. An instance can be moved to another thread to continue processing there.
+ *
+ * @author Igor Polevoy
+ */
+final class RequestScope {
+
+    HttpServletRequest request;
+    HttpServletResponse response;
+    FilterConfig filterConfig;
+    ControllerResponse controllerResponse;
+    AppContext appContext;
+    RequestVo requestVo;
+    String format;
+    String encoding;
+    Route route;
+    Map<String, Object> values;
+    String flushedLayout;
+    long startNanos;
+    final long[] phaseNanos = new long[RequestPhase.values().length];
+
+    void reset() {
+        request = null;
+        response = null;
+        filterConfig = null;
+        controllerResponse = null;
+        appContext = null;
+        requestVo = null;
+        format = null;
+        encoding = null;
+        route = null;
+        values = null;
+        flushedLayout = null;
+        startNanos = 0;
+        Arrays.fill(phaseNanos, 0);
+    }
+}
@@ -1,6 +1,8 @@
 package org.javalite.activeweb;
 
+import javax.servlet.http.HttpServletRequest;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -20,6 +22,15 @@ public class RequestVo {
     
     private String wildCardName, wildCardValue;
 
+    /**
+     * Form items of a multipart request are parsed once, and kept here rather than in a controller or filter,
+     * because filters and singleton controllers serve many requests.
+     */
+    private HttpServletRequest formItemsRequest;
+    private List<FormItem> formItems;
+
+    private AsyncAction asyncAction;
+
     protected Object get(String name){
         return values.get(name);
     }
@@ -28,6 +39,27 @@ public class RequestVo {
         return userSegments;
     }
 
+    /**
+     * @param request current request
+     * @return form items parsed from the request, null if they were not parsed yet.
+     */
+    protected List<FormItem> getFormItems(HttpServletRequest request) {
+        return request == formItemsRequest ? formItems : null;
+    }
+
+    protected void setFormItems(HttpServletRequest request, List<FormItem> formItems) {
+        this.formItemsRequest = request;
+        this.formItems = formItems;
+    }
+
+    AsyncAction getAsyncAction() {
+        return asyncAction;
+    }
+
+    void setAsyncAction(AsyncAction asyncAction) {
+        this.asyncAction = asyncAction;
+    }
+
     protected void set(String name, Object value){
         values.put(name, value);
     }
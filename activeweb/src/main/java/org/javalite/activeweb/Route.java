@@ -1,6 +1,8 @@
 package org.javalite.activeweb;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  *  Instance of this class will contain routing information.
@@ -13,6 +15,7 @@ public class Route {
     private String actionName, id, wildCardName, wildCardValue;
     private List<IgnoreSpec> ignoreSpecs;
     private HttpMethod method;
+    private Map<String, String> userSegments = Collections.emptyMap();
 
     public Route(AppController controller, String actionName, HttpMethod method) {
         this.controller = controller;
@@ -27,12 +30,13 @@ public class Route {
         this.method = method;
     }
 
-    public Route(RouteBuilder builder, HttpMethod method) {
-        this.controller = builder.getController();
-        this.actionName = builder.getActionName();
-        this.id = builder.getId();
-        this.wildCardName = builder.getWildcardName();
-        this.wildCardValue = builder.getWildCardValue();
+    Route(AppController controller, RouteMatch match, HttpMethod method) {
+        this.controller = controller;
+        this.actionName = match.getActionName();
+        this.id = match.getId();
+        this.userSegments = match.getUserSegments();
+        this.wildCardName = match.getWildCardName();
+        this.wildCardValue = match.getWildCardValue();
         this.method = method;
     }
 
@@ -68,6 +72,13 @@ public class Route {
         return method;
     }
 
+    /**
+     * @return values of user segments captured by a custom route, never null.
+     */
+    Map<String, String> getUserSegments() {
+        return userSegments;
+    }
+
     protected String getControllerPath(){
         return Router.getControllerPath(controller.getClass());
     }
@@ -18,9 +18,7 @@ package org.javalite.activeweb;
 
 import org.javalite.common.Util;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -40,9 +38,11 @@ public class RouteBuilder {
     private List<HttpMethod> methods = new ArrayList<>();
 
     private String wildcardName;
-    private String wildCardValue;
 
     private int mandatorySegmentCount;
+    //positions of built-in segments in the route, -1 if segment not used
+    private int controllerIndex = -1, actionIndex = -1, idIndex = -1;
+    private boolean hasUserSegments;
 
     /**
      * Used for standard and restful routes.
@@ -88,10 +88,20 @@ public class RouteBuilder {
         }
         this.routeConfig = routeConfig;
 
-        for (Segment segment : segments) {
+        for (int i = 0; i < segments.size(); i++) {
+            Segment segment = segments.get(i);
             if (segment.mandatory) {
                 mandatorySegmentCount++;
             }
+            if (segment.controller) {
+                controllerIndex = i;
+            } else if (segment.action) {
+                actionIndex = i;
+            } else if (segment.id) {
+                idIndex = i;
+            } else if (segment.user) {
+                hasUserSegments = true;
+            }
         }
     }
 
@@ -103,10 +113,6 @@ public class RouteBuilder {
         return wildcardName;
     }
 
-    public String getWildCardValue() {
-        return wildCardValue;
-    }
-
     /**
      * Allows to wire a route to a controller.
      *
@@ -209,24 +215,13 @@ public class RouteBuilder {
     }
 
     protected String getActionName() {
-        return actionName == null ? actionName = "index": actionName;
+        return actionName == null ? "index" : actionName;
     }
 
     protected String getId() {
         return id;
     }
 
-    protected AppController getController() {
-        try {
-            return controller == null? controller = type.newInstance(): controller ;
-        } catch (Exception e) {
-            throw new ControllerException(e);
-        }
-    }
-
-
-
-
     /**
      * Returns true if this route matches the request URI, otherwise returns false.
      *
@@ -237,57 +232,112 @@ public class RouteBuilder {
      * @throws ClassLoadException in case could not load controller
      */
     protected boolean matches(String requestUri, HttpMethod httpMethod) throws ClassLoadException {
+        return match(requestUri, Util.split(requestUri, '/'), httpMethod) != null;
+    }
 
-        boolean match = false;
+    /**
+     * Matches this route against a request. The builder is not modified, values captured from the URI are returned
+     * in a new instance of {@link RouteMatch}, so that a single route can be used by many requests concurrently.
+     *
+     * @param requestUri incoming URI for request.
+     * @param requestUriSegments segments of the request URI, as split by the router.
+     * @param httpMethod HTTP method of the request.
+     * @return values captured from the request if this route matches, null if it does not.
+     * @throws ClassLoadException in case could not load controller
+     */
+    RouteMatch match(String requestUri, String[] requestUriSegments, HttpMethod httpMethod) throws ClassLoadException {
 
-        String[] requestUriSegments = Util.split(requestUri, '/');
-        if(isWildcard() && requestUriSegments.length >= segments.size() && wildSegmentsMatch(requestUriSegments)){
+        if (!methodMatches(httpMethod)) {
+            return null;
+        }
+
+        if(isWildcard()){
+            if (requestUriSegments.length < segments.size() || !segmentsMatch(requestUriSegments, segments.size() - 1)) {
+                return null;
+            }
             String[] tailArr = Arrays.copyOfRange(requestUriSegments, segments.size() - 1, requestUriSegments.length);
-            wildCardValue = Util.join(tailArr, "/");
-            match = true;
-        }else if(segments.isEmpty() && requestUri.equals("/")){
+            return newMatch(requestUriSegments, capturedAction(requestUriSegments), Util.join(tailArr, "/"));
+        }else if(segments.isEmpty()){
             //this is matching root path: "/"
-            actionName = "index";
-            match = true;
+            return requestUri.equals("/") ? newMatch(requestUriSegments, "index", null) : null;
         }else if(requestUriSegments.length < mandatorySegmentCount || requestUriSegments.length > segments.size()){
             //route("/greeting/{user_id}").to(HelloController.class).action("hi");
-            match = false;
+            return null;
         }else{
-            //there should be a more elegant way ...
-            for (int i = 0; i < requestUriSegments.length; i++) {
-                String requestUriSegment = requestUriSegments[i];
-                match = segments.get(i).match(requestUriSegment);
-                if(!match)
-                    break;
-            }
+            return segmentsMatch(requestUriSegments, requestUriSegments.length)
+                    ? newMatch(requestUriSegments, capturedAction(requestUriSegments), null)
+                    : null;
         }
+    }
 
-        if(match && Configuration.activeReload()){
-            controller = reloadController();
+    private boolean segmentsMatch(String[] requestUriSegments, int count) {
+        for (int i = 0; i < count; i++) {
+            if (!segments.get(i).match(requestUriSegments[i])) {
+                return false;
+            }
         }
+        return true;
+    }
 
-        return match && methodMatches(httpMethod);
+    private String capturedAction(String[] requestUriSegments) {
+        return actionIndex == -1 ? getActionName() : requestUriSegments[actionIndex];
     }
 
-    private boolean wildSegmentsMatch(String[] requestUriSegments) throws ClassLoadException {
-        for (int i = 0; i < segments.size() - 1; i++) {
-            Segment segment = segments.get(i);
-            if(!segment.match(requestUriSegments[i])){
-                return false;
+    private RouteMatch newMatch(String[] requestUriSegments, String action, String wildCardValue) throws ClassLoadException {
+        Class<? extends AppController> controllerClass = type;
+        if (controllerClass == null && controllerIndex != -1) {
+            //in case controller not provided in config, we infer it from the segment.
+            controllerClass = ControllerFactory.getControllerClass(requestUriSegments[controllerIndex], null);
+        }
+
+        Map<String, String> userSegments = null;
+        if (hasUserSegments) {
+            userSegments = new HashMap<>();
+            for (int i = 0; i < requestUriSegments.length && i < segments.size(); i++) {
+                Segment segment = segments.get(i);
+                if (segment.user && segment.userSegmentName != null) {
+                    userSegments.put(segment.userSegmentName, requestUriSegments[i]);
+                }
             }
         }
-        return true;
+        return new RouteMatch(controllerClass, action, idIndex == -1 ? id : requestUriSegments[idIndex],
+                userSegments, wildcardName, wildCardValue);
+    }
+
+    List<Segment> getSegments() {
+        return segments;
+    }
+
+    List<HttpMethod> getMethods() {
+        return methods;
     }
 
     private boolean methodMatches(HttpMethod httpMethod) {
         return methods.isEmpty() && httpMethod.equals(HttpMethod.GET) || methods.contains(httpMethod);
     }
 
-    private AppController reloadController() throws ClassLoadException {
-
+    /**
+     * Creates a new instance of controller for every match, unless the controller is a singleton. Reloads a
+     * controller class in active reload mode.
+     *
+     * @param match result of matching this route.
+     * @return new instance of controller.
+     */
+    AppController createController(RouteMatch match) throws ClassLoadException {
+        if (controller != null) {
+            return controller;
+        }
+        Class<? extends AppController> controllerClass = match.getControllerClass();
+        if (controllerClass == null) {
+            throw new ControllerException("Controller is not configured for route: " + routeConfig);
+        }
         try {
-            return  ControllerFactory.createControllerInstance(getController().getClass().getName());
-        } catch (ClassLoadException e) {
+            if (Configuration.activeReload()) {
+                return ControllerFactory.createControllerInstance(controllerClass.getName());
+            }
+            ControllerMetadata metadata = ControllerMetadata.of(controllerClass);
+            return metadata.isSingleton() ? metadata.getSingleton() : controllerClass.newInstance();
+        } catch (ClassLoadException | WebException e) {
             throw e;
         } catch (Exception e) {
             throw new ClassLoadException(e);
@@ -297,7 +347,7 @@ public class RouteBuilder {
     /**
      * Contains a single segment provided in RouteConfig
      */
-    private class Segment{
+    class Segment{
         private String segment, userSegmentName;
         private boolean controller, action, id, user, mandatory = true, staticSegment, wildCard;
 
@@ -321,31 +371,43 @@ public class RouteBuilder {
             }
         }
 
-        boolean match(String requestSegment) throws ClassLoadException {
+        String getValue() {
+            return segment;
+        }
 
-            if(staticSegment && requestSegment.equals(segment)){
-                return true;
-            }else if(controller){
+        boolean isStatic() {
+            return staticSegment && !wildCard;
+        }
 
-                if(type == null){//in case controller not provided in config, we infer it from the segment.
-                    String controllerClassName = ControllerFactory.getControllerClassName("/" + requestSegment);
-                    type = DynamicClassFactory.getCompiledClass(controllerClassName);
-                    return true;
-                }
-                return requestSegment.equals(Router.getControllerPath(type).substring(1));
-
-            }else if(action){
-                RouteBuilder.this.actionName = requestSegment;
-                return true;
-            }else if(id){
-                RouteBuilder.this.id = requestSegment;
-                return true;
-            }else if(user && userSegmentName != null){
-                RequestContext.getRequestVo().getUserSegments().put(userSegmentName, requestSegment);
-                return true;
-            }
+        boolean isWildCard() {
+            return wildCard;
+        }
+
+        boolean isController() {
+            return controller;
+        }
 
-            return false;
+        boolean isAction() {
+            return action;
+        }
+
+        boolean isId() {
+            return id;
+        }
+
+        /**
+         * Matches a segment of request URI. Does not capture values, see {@link RouteBuilder#match(String, String[], HttpMethod)}.
+         */
+        boolean match(String requestSegment) {
+
+            if(staticSegment){
+                return requestSegment.equals(segment);
+            }else if(controller){
+                //in case controller not provided in config, it is inferred from the segment later.
+                return type == null || requestSegment.equals(Router.getControllerPath(type).substring(1));
+            }else{
+                return action || id || user;
+            }
         }
     }
 
@@ -11,4 +11,8 @@ public class RouteException extends WebException {
     public RouteException(String message, Throwable cause) {
         super(message, cause);
     }
+
+    RouteException(String message, boolean writableStackTrace) {
+        super(message, null, writableStackTrace);
+    }
 }
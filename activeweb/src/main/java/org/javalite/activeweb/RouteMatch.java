@@ -0,0 +1,58 @@
+package org.javalite.activeweb;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Values captured from a request URI by a custom route. Instances are immutable and created for each request, so
+ * that the routes themselves can be shared by all threads.
+ *
+ * @author Igor Polevoy
+ */
+final class RouteMatch {
+
+    private final Class<? extends AppController> controllerClass;
+    private final String actionName, id, wildCardName, wildCardValue;
+    private final Map<String, String> userSegments;
+
+    RouteMatch(Class<? extends AppController> controllerClass, String actionName, String id,
+               Map<String, String> userSegments, String wildCardName, String wildCardValue) {
+        this.controllerClass = controllerClass;
+        this.actionName = actionName;
+        this.id = id;
+        this.userSegments = userSegments == null ? Collections.<String, String>emptyMap()
+                : Collections.unmodifiableMap(userSegments);
+        this.wildCardName = wildCardName;
+        this.wildCardValue = wildCardValue;
+    }
+
+    /**
+     * @return controller class configured for a route, or inferred from a <code>{controller}</code> segment.
+     */
+    Class<? extends AppController> getControllerClass() {
+        return controllerClass;
+    }
+
+    String getActionName() {
+        return actionName;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    /**
+     * @return values of user segments, such as <code>{user_id}</code>, keyed by segment name. Never null.
+     */
+    Map<String, String> getUserSegments() {
+        return userSegments;
+    }
+
+    String getWildCardName() {
+        return wildCardName;
+    }
+
+    String getWildCardValue() {
+        return wildCardValue;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package org.javalite.activeweb;
+
+import java.util.*;
+
+/**
+ * Custom routes compiled into a tree of URI segments. Static segments are looked up by value, segments such as
+ * <code>{controller}</code>, <code>{action}</code>, <code>{id}</code> and user segments are kept in typed slots,
+ * and routes ending in a wild card are kept on a node where the wild card starts. Routes at the end of the path
+ * are bucketed by HTTP method.
+ * <p></p>
+ * A lookup only walks the tree as deep as the request URI, and returns a few candidate routes in order of
+ * definition in the RouteConfig. The router still calls {@link RouteBuilder#match(String, String[], HttpMethod)} on
+ * each candidate, so the first route defined in the config wins, as before.
+ *
+ * @author Igor Polevoy
+ */
+class RouteTrie {
+
+    private enum Slot {CONTROLLER, ACTION, ID, USER}
+
+    private final Node root = new Node();
+
+    RouteTrie(List<RouteBuilder> routes) {
+        for (int i = 0; i < routes.size(); i++) {
+            add(new Entry(i, routes.get(i)));
+        }
+    }
+
+    private void add(Entry entry) {
+        Node node = root;
+        for (RouteBuilder.Segment segment : entry.builder.getSegments()) {
+            if (segment.isWildCard()) {
+                node.wildCards = node.add(node.wildCards, entry);
+                return;
+            }
+            node = segment.isStatic() ? node.staticChild(segment.getValue()) : node.slotChild(slot(segment));
+        }
+        node.routes = node.add(node.routes, entry);
+    }
+
+    private static Slot slot(RouteBuilder.Segment segment) {
+        if (segment.isController()) {
+            return Slot.CONTROLLER;
+        } else if (segment.isAction()) {
+            return Slot.ACTION;
+        } else if (segment.isId()) {
+            return Slot.ID;
+        } else {
+            return Slot.USER;
+        }
+    }
+
+    /**
+     * Finds routes that can match a request.
+     *
+     * @param uri request URI
+     * @param segments segments of request URI
+     * @param method HTTP method of request
+     * @return routes that can match the request in order of definition, empty list if none.
+     */
+    List<RouteBuilder> candidates(String uri, String[] segments, HttpMethod method) {
+        List<Entry> found = new ArrayList<>(2);
+        if (segments.length == 0) {
+            if (uri.equals("/")) {
+                addAll(root.routes, method, found);
+            }
+        } else {
+            collect(root, segments, 0, method, found);
+        }
+
+        if (found.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (found.size() > 1) {
+            Collections.sort(found);
+        }
+        List<RouteBuilder> candidates = new ArrayList<>(found.size());
+        for (Entry entry : found) {
+            candidates.add(entry.builder);
+        }
+        return candidates;
+    }
+
+    private void collect(Node node, String[] segments, int depth, HttpMethod method, List<Entry> found) {
+        if (depth == segments.length) {
+            addAll(node.routes, method, found);
+            return;
+        }
+        addAll(node.wildCards, method, found);
+
+        if (node.statics != null) {
+            Node child = node.statics.get(segments[depth]);
+            if (child != null) {
+                collect(child, segments, depth + 1, method, found);
+            }
+        }
+        if (node.slots != null) {
+            for (Node child : node.slots) {
+                if (child != null) {
+                    collect(child, segments, depth + 1, method, found);
+                }
+            }
+        }
+    }
+
+    private void addAll(List<Entry>[] buckets, HttpMethod method, List<Entry> found) {
+        if (buckets != null && buckets[method.ordinal()] != null) {
+            found.addAll(buckets[method.ordinal()]);
+        }
+    }
+
+    private static class Node {
+        private Map<String, Node> statics;
+        private Node[] slots;
+        private List<Entry>[] routes, wildCards;
+
+        Node staticChild(String value) {
+            if (statics == null) {
+                statics = new HashMap<>();
+            }
+            Node child = statics.get(value);
+            if (child == null) {
+                statics.put(value, child = new Node());
+            }
+            return child;
+        }
+
+        Node slotChild(Slot slot) {
+            if (slots == null) {
+                slots = new Node[Slot.values().length];
+            }
+            Node child = slots[slot.ordinal()];
+            if (child == null) {
+                slots[slot.ordinal()] = child = new Node();
+            }
+            return child;
+        }
+
+        /**
+         * Adds entry to buckets of HTTP methods it is mapped to. Route without methods is mapped to GET.
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"}) // generic array creation
+        List<Entry>[] add(List<Entry>[] buckets, Entry entry) {
+            if (buckets == null) {
+                buckets = new List[HttpMethod.values().length];
+            }
+            List<HttpMethod> methods = entry.builder.getMethods();
+            if (methods.isEmpty()) {
+                addTo(buckets, HttpMethod.GET, entry);
+            } else {
+                for (HttpMethod method : methods) {
+                    addTo(buckets, method, entry);
+                }
+            }
+            return buckets;
+        }
+
+        private void addTo(List<Entry>[] buckets, HttpMethod method, Entry entry) {
+            if (buckets[method.ordinal()] == null) {
+                buckets[method.ordinal()] = new ArrayList<>(1);
+            }
+            buckets[method.ordinal()].add(entry);
+        }
+    }
+
+    private static class Entry implements Comparable<Entry> {
+        private final int index;
+        private final RouteBuilder builder;
+
+        Entry(int index, RouteBuilder builder) {
+            this.index = index;
+            this.builder = builder;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return Integer.compare(index, other.index);
+        }
+    }
+}
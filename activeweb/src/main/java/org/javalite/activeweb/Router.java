@@ -23,8 +23,6 @@ import org.slf4j.LoggerFactory;
 import java.net.URLEncoder;
 import java.util.*;
 
-import static org.javalite.activeweb.ControllerFactory.createControllerInstance;
-import static org.javalite.activeweb.ControllerFactory.getControllerClassName;
 import static org.javalite.common.Collections.map;
 
 /**
@@ -42,7 +40,7 @@ public class Router {
     public static final String PACKAGE_SUFFIX = "package_suffix";
 
     private String rootControllerName;
-    private List<RouteBuilder> routes = new ArrayList<>();
+    private RouteTrie routes = new RouteTrie(Collections.<RouteBuilder>emptyList());
     private List<IgnoreSpec> ignoreSpecs;
 
     protected Router(String rootControllerName) {
@@ -55,7 +53,7 @@ public class Router {
      * @param routes se of custom routes defined for app.
      */
     public void setRoutes(List<RouteBuilder> routes) {
-        this.routes = routes;
+        this.routes = new RouteTrie(routes);
     }
 
     /**
@@ -76,8 +74,7 @@ public class Router {
             if (controllerName == null) {
                 return null;
             }
-            String controllerClassName = getControllerClassName(controllerName, packageSuffix);
-            AppController controller = createControllerInstance(controllerClassName);
+            AppController controller = ControllerFactory.createController(controllerName, packageSuffix);
 
             if (uri.equals("/") && rootControllerName != null && httpMethod.equals(HttpMethod.GET)) {
                 route = new Route(controller, "index", httpMethod);
@@ -91,16 +88,19 @@ public class Router {
             route.setIgnoreSpecs(ignoreSpecs);
         }else{
             logger.error("Failed to recognize URL: '" + uri + "'");
-            throw new RouteException("Failed to map resource to URI: " + uri);
+            //thrown for every unknown URI, a stack trace would only show the router, skipped in production
+            throw new RouteException("Failed to map resource to URI: " + uri, !Configuration.productionErrors());
         }
 
         return route;
     }
 
     private Route matchCustom(String uri, HttpMethod httpMethod) throws ClassLoadException {
-        for (RouteBuilder builder : routes) {
-            if (builder.matches(uri, httpMethod)) {
-                return new Route(builder, httpMethod);
+        String[] segments = Util.split(uri, '/');
+        for (RouteBuilder builder : routes.candidates(uri, segments, httpMethod)) {
+            RouteMatch match = builder.match(uri, segments, httpMethod);
+            if (match != null) {
+                return new Route(builder.createController(match), match, httpMethod);
             }
         }
         return null;
@@ -303,16 +303,27 @@ public class Router {
             LOGGER.warn("URI is: '/', but root controller not set");
             return new HashMap<>();
         } else {
-            String pack;
-            if ((pack = findPackagePrefix(uri)) != null) {
-                String controllerName = findControllerNamePart(pack, uri);
-                return map(CONTROLLER_NAME, controllerName, Router.PACKAGE_SUFFIX, pack);
+            ControllerPackageTrie.ControllerPath path = findControllerPath(uri);
+            String pack = path.getPackageSuffix();
+            if (pack != null) {
+                if (path.getControllerName().equals("")) {
+                    throw new ControllerException("You defined a controller package '" + pack + "', but this request does not specify controller name");
+                }
+                return map(CONTROLLER_NAME, path.getControllerName(), Router.PACKAGE_SUFFIX, pack);
             } else {
-                return map(CONTROLLER_NAME, uri.split("/")[1]);//no package suffix
+                return map(CONTROLLER_NAME, path.getControllerName());//no package suffix
             }
         }
     }
 
+    private ControllerPackageTrie.ControllerPath findControllerPath(String uri) {
+        ControllerPackageTrie packages = Configuration.getControllerPackageTrie();
+        if (packages == null) {
+            packages = new ControllerPackageTrie(Collections.<String>emptyList());
+        }
+        return packages.find(uri);
+    }
+
     /**
      * Generates a path to a controller based on its package and class name. The path always starts with a slash: "/".
      * Examples:
@@ -329,6 +340,14 @@ public class Router {
      * @return standard path for a controller.
      */
     static <T extends AppController> String getControllerPath(Class<T> controllerClass) {
+        return ControllerMetadata.of(controllerClass).getControllerPath();
+    }
+
+    /**
+     * Computes a path of a controller, see {@link #getControllerPath(Class)}, which returns a value cached in
+     * {@link ControllerMetadata}.
+     */
+    static String generateControllerPath(Class<? extends AppController> controllerClass) {
         String simpleName = controllerClass.getSimpleName();
         if (!simpleName.endsWith("Controller")) {
             throw new ControllerException("controller name must end with 'Controller' suffix");
@@ -346,25 +365,6 @@ public class Router {
         return (packageSuffix.equals("") ? "" : "/" + packageSuffix) + "/" + Inflector.underscore(simpleName.substring(0, simpleName.lastIndexOf("Controller")));
     }
 
-    /**
-     * Now that we know that this controller is under a package, need to find the controller short name.
-     *
-     * @param pack part of the package of the controller, taken from URI: value between "app.controllers" and controller name.
-     * @param uri  uri from request
-     * @return controller name
-     */
-    protected static String findControllerNamePart(String pack, String uri) {
-        String temp = uri.startsWith("/") ? uri.substring(1) : uri;
-        temp = temp.replace("/", ".");
-        if (temp.length() > pack.length())
-            temp = temp.substring(pack.length() + 1);
-
-        if (temp.equals("") || temp.equals(pack))
-            throw new ControllerException("You defined a controller package '" + pack + "', but this request does not specify controller name");
-
-        return temp.split("\\.")[0];
-    }
-
     /**
      * Finds a part of a package name which can be found in between "app.controllers" and short name of class.
      *
@@ -373,30 +373,7 @@ public class Router {
      *         if not found
      */
     protected String findPackagePrefix(String uri) {
-
-        String temp = uri.startsWith("/") ? uri.substring(1) : uri;
-        temp = temp.replace(".", "_");
-        temp = temp.replace("/", ".");
-
-        //find all matches
-        List<String> candidates = new ArrayList<>();
-
-        for (String pack : Configuration.getControllerPackages()) {
-            if (temp.startsWith(pack)) {
-                candidates.add(pack);
-            }
-        }
-        int resultIndex = 0;
-        int size = 0;
-        //find the longest package
-        for (int i = 0; i < candidates.size(); i++) {
-            String candidate = candidates.get(i);
-            if (candidate.length() > size) {
-                size = candidate.length();
-                resultIndex = i;
-            }
-        }
-        return !candidates.isEmpty() ? candidates.get(resultIndex) : null;
+        return findControllerPath(uri).getPackageSuffix();
     }
 
     //todo: write a regexp one day
@@ -42,6 +42,47 @@ public abstract class TemplateManager {
      */
     public abstract void merge(Map<String, Object> values, String template, Writer writer);
 
+    /**
+     * Renders a head of a layout: part of the layout before a flush marker. Called before an action is executed,
+     * so values only include request data. A template manager which does not support flushing returns false.
+     *
+     * @param values values to be merged.
+     * @param layout name of layout.
+     * @param writer Writer to write results to.
+     * @return true if the head was written, false if nothing was written, because the layout has no flush marker
+     * or the head cannot be rendered without a page.
+     */
+    public boolean mergeLayoutHead(Map<String, Object> values, String layout, Writer writer) {
+        return false;
+    }
+
+    /**
+     * Renders a page in a layout whose head has already been written by
+     * {@link #mergeLayoutHead(Map, String, Writer)}: only part of the layout after flush marker is written.
+     * Arguments are the same as of {@link #merge(Map, String, String, String, Writer)}. A template manager which
+     * overrides {@link #mergeLayoutHead(Map, String, Writer)} overrides this method too, by default the whole page
+     * is rendered with {@link #merge(Map, String, String, String, Writer)}.
+     */
+    public void mergeAfterLayoutHead(Map<String, Object> values, String templateName, String layout, String format, Writer writer) {
+        merge(values, templateName, layout, format, writer);
+    }
+
+    /**
+     * Called when application starts. A template manager can load and parse templates ahead of requests.
+     *
+     * @throws InitException if templates cannot be loaded.
+     */
+    public void warmUp() {
+    }
+
+    /**
+     * Removes cached fragments of pages. A template manager which does not cache fragments does nothing.
+     *
+     * @param keyPrefix prefix of keys of fragments to remove, empty string to remove all.
+     */
+    public void purgeFragments(String keyPrefix) {
+    }
+
     /**
      * A template manager might need a context to be able to load templates from it.
      *
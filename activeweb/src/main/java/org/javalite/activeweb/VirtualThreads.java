@@ -0,0 +1,53 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package org.javalite.activeweb;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates an executor of virtual threads, if current JDK has them. ActiveWeb is compiled for Java 8, so the
+ * executor is looked up at runtime.
+ *
+ * @author Igor Polevoy
+ */
+class VirtualThreads {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreads.class);
+
+    private VirtualThreads() {}
+
+    /**
+     * @return executor which starts a new virtual thread for each task, null if current JDK does not support
+     * virtual threads.
+     */
+    static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            LOGGER.warn("Virtual threads are not supported by Java " + System.getProperty("java.version")
+                    + ", requests will be processed on container threads");
+        } catch (Exception e) {
+            //preview versions of JDK throw UnsupportedOperationException without --enable-preview
+            LOGGER.warn("Virtual threads are not available, requests will be processed on container threads: "
+                    + (e.getCause() == null ? e : e.getCause()));
+        }
+        return null;
+    }
+}
@@ -35,6 +35,14 @@ public class WebException extends RuntimeException {
         super(cause);    
     }
 
+    /**
+     * @param writableStackTrace false to skip filling in a stack trace, for exceptions which are frequent and expected,
+     * such as requests to URIs which do not exist.
+     */
+    protected WebException(String message, Throwable cause, boolean writableStackTrace) {
+        super(message, cause, false, writableStackTrace);
+    }
+
     @Override
     public String getMessage() {
         String message = super.getMessage();
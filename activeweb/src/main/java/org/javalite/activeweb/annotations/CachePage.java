@@ -0,0 +1,57 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License"); 
+you may not use this file except in compliance with the License. 
+You may obtain a copy of the License at 
+
+http://www.apache.org/licenses/LICENSE-2.0 
+
+Unless required by applicable law or agreed to in writing, software 
+distributed under the License is distributed on an "AS IS" BASIS, 
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+See the License for the specific language governing permissions and 
+limitations under the License. 
+*/
+package org.javalite.activeweb.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a GET action whose response is the same for all users. The response is kept in memory and sent to following
+ * requests with the same path and query string, without routing, filters or the action, until it expires.
+ * A response is kept only if it has status 200 and does not set cookies, and a request has no session, cookies or
+ * <code>Authorization</code> header, because such responses can be specific to a user. Such requests are not sent
+ * pages from memory either, and are always processed by filters and the action.
+ * <p></p>
+ * When a page expires, one request renders it again, while other requests still get the old page.
+ * Pages can be removed earlier with {@link org.javalite.activeweb.HttpSupport#purgePages(String)}.
+ * Memory used by pages is set with {@link org.javalite.activeweb.Configuration#setPageCacheSize(long)}.
+ * Pages are not cached when active reload is on.
+ *
+ * <pre>
+ * &#064;CachePage(ttl = 600, vary = "Accept-Language")
+ * public void index(){
+ *     view("books", Book.findAll());
+ * }
+ * </pre>
+ *
+ * @author Igor Polevoy
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface CachePage {
+
+    /**
+     * @return time to live of a page in seconds.
+     */
+    int ttl() default 300;
+
+    /**
+     * @return names of request headers, a page is kept for each combination of their values.
+     */
+    String[] vary() default {};
+}
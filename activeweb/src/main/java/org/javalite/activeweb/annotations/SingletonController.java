@@ -0,0 +1,50 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License"); 
+you may not use this file except in compliance with the License. 
+You may obtain a copy of the License at 
+
+http://www.apache.org/licenses/LICENSE-2.0 
+
+Unless required by applicable law or agreed to in writing, software 
+distributed under the License is distributed on an "AS IS" BASIS, 
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+See the License for the specific language governing permissions and 
+limitations under the License. 
+*/
+package org.javalite.activeweb.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a controller as stateless. A single instance of such controller is created and injected with dependencies
+ * once, and then it serves all requests on all threads, instead of a new instance created for every request.
+ * Actions get request data from methods like <code>param()</code> and <code>session()</code>, which work
+ * the same in a singleton controller.
+ * <p></p>
+ * A controller with this annotation must not declare instance fields, other than <code>final</code> fields and
+ * fields injected with <code>@Inject</code>. A controller that does is rejected with
+ * {@link org.javalite.activeweb.ControllerException} when it is requested. Keep in mind that objects referenced
+ * from <code>final</code> fields are shared by all requests too.
+ *
+ * <pre>
+ * &#064;SingletonController
+ * public class BooksController extends AppController {
+ *     &#064;Inject
+ *     private BookService bookService;
+ *
+ *     public void index(){
+ *         view("books", bookService.list());
+ *     }
+ * }
+ * </pre>
+ *
+ * @author Igor Polevoy
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface SingletonController {}
@@ -27,6 +27,9 @@ import java.util.List;
 /**
  * Class is to be used in web apps that use ActiveJDBC. This class will open a connection configured in <code>DBConfig</code> class
  * of the application before controller is executed and will close it after.
+ * If an action is asynchronous, opened connections are moved to a thread which completes the action, and are
+ * available to its continuation, see {@link org.javalite.activeweb.AppController#async(java.util.concurrent.CompletionStage, java.util.function.Consumer)}.
+ * They are committed and closed on that thread.
  *
  * @author Igor Polevoy
  */
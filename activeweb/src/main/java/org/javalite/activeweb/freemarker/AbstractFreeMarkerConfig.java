@@ -17,6 +17,7 @@ limitations under the License.
 package org.javalite.activeweb.freemarker;
 
 import com.google.inject.Injector;
+import freemarker.cache.MruCacheStorage;
 import freemarker.template.Configuration;
 
 import java.util.ArrayList;
@@ -31,6 +32,9 @@ public abstract class AbstractFreeMarkerConfig {
 
     private List<FreeMarkerTag> userTags = new ArrayList<>();
 
+    private boolean streamingLayouts;
+    private boolean warmUpTemplates;
+
     public void setConfiguration(Configuration config){
         this.configuration = config;
     }
@@ -61,6 +65,77 @@ public abstract class AbstractFreeMarkerConfig {
         return (FreeMarkerTag) configuration.getSharedVariable(tagName);
     }
 
+    /**
+     * Call from {@link #init()} to render layouts directly to the response, see
+     * {@link FreeMarkerTemplateManager#setStreamingLayouts(boolean)}.
+     *
+     * @param streamingLayouts true to stream layouts.
+     */
+    public void setStreamingLayouts(boolean streamingLayouts) {
+        this.streamingLayouts = streamingLayouts;
+    }
+
+    public boolean isStreamingLayouts() {
+        return streamingLayouts;
+    }
+
+    /**
+     * Call from {@link #init()} to parse all templates when application starts, rather than on first requests.
+     * Application fails to start if a template has a syntax error. Ignored in development environment.
+     *
+     * @param warmUpTemplates true to parse templates at start.
+     */
+    public void setWarmUpTemplates(boolean warmUpTemplates) {
+        this.warmUpTemplates = warmUpTemplates;
+    }
+
+    public boolean isWarmUpTemplates() {
+        return warmUpTemplates;
+    }
+
+    /**
+     * Sets size of template cache. Templates which do not fit are parsed again when used.
+     * By default, templates are kept until JVM runs low on memory.
+     *
+     * @param strongSize number of most recently used templates which are always kept.
+     * @param softSize number of other templates which are kept until JVM runs low on memory.
+     */
+    public void setTemplateCacheSize(int strongSize, int softSize) {
+        configuration.setCacheStorage(new CountingCacheStorage(new MruCacheStorage(strongSize, softSize)));
+    }
+
+    /**
+     * Sets how many parsed templates of text processed by tags are kept, see
+     * {@link FreeMarkerTag#process(String, java.util.Map, java.io.Writer)}. Least recently used templates are removed first.
+     * Default is 500.
+     *
+     * @param size number of templates to keep, 0 to parse text every time.
+     */
+    public void setInlineTemplateCacheSize(int size) {
+        configuration.setCustomAttribute(InlineTemplateCache.ATTRIBUTE, new InlineTemplateCache(size));
+    }
+
+    /**
+     * Sets how much memory is used by output of <code>&lt;@cache&gt;</code> tags, see {@link CacheTag}.
+     * Least recently used fragments are removed first. Default is 16 MB.
+     *
+     * @param maxBytes size in bytes, 0 to render body of tags every time.
+     */
+    public void setFragmentCacheSize(long maxBytes) {
+        configuration.setCustomAttribute(FragmentCache.ATTRIBUTE, new FragmentCache(maxBytes));
+    }
+
+    /**
+     * Sets how often a cached template is checked for changes of its file. Default is 5 seconds. Use a large value
+     * in production, where templates do not change. Ignored in development environment, where templates are parsed
+     * on every request.
+     *
+     * @param seconds delay in seconds.
+     */
+    public void setTemplateUpdateDelay(int seconds) {
+        configuration.setTemplateUpdateDelayMilliseconds(seconds * 1000L);
+    }
+
     /**
      * Called by framework during initialization.
      */
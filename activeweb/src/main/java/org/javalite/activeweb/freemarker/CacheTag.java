@@ -0,0 +1,160 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package org.javalite.activeweb.freemarker;
+
+import freemarker.core.Environment;
+import freemarker.template.*;
+import org.javalite.activeweb.Configuration;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This is a FreeMarker directive which is registered as <code>&lt;@cache ... &gt;</code> tag. It keeps the output
+ * of its body in memory, so that the body is not rendered again until the output expires:
+ *
+ * <pre>
+ * &lt;@cache key="sidebar" ttl="600" vary="locale,user_id"&gt;
+ *     ...
+ * &lt;/@cache&gt;
+ * </pre>
+ *
+ * Attributes:
+ * <ul>
+ *     <li><strong>key</strong> - mandatory, name of the fragment.</li>
+ *     <li><strong>ttl</strong> - time to live in seconds, default is 300.</li>
+ *     <li><strong>vary</strong> - comma separated names of variables, a fragment is kept for each combination of
+ *     their values. Name <code>locale</code> means locale of the page, unless there is a variable with such name.</li>
+ * </ul>
+ *
+ * Content written by <code>&lt;@content for=""&gt;</code> tags inside of the body is kept together with the output,
+ * and is available to <code>&lt;@yield&gt;</code> when the fragment is taken from cache.
+ * <p></p>
+ * Fragments can be removed with {@link org.javalite.activeweb.HttpSupport#purgeFragments(String)}. Size of
+ * the cache is set with {@link AbstractFreeMarkerConfig#setFragmentCacheSize(long)}. Fragments are not cached
+ * when active reload is on.
+ *
+ * @author Igor Polevoy
+ */
+public class CacheTag implements TemplateDirectiveModel {
+
+    static final int DEFAULT_TTL = 300;
+
+    @SuppressWarnings("rawtypes") //signature of TemplateDirectiveModel
+    public void execute(Environment env, Map params, TemplateModel[] loopVars, TemplateDirectiveBody body) throws TemplateException, IOException {
+        Util.validateParamsPresence(params, "key");
+        int ttl = ttl(params);
+        if (body == null) {
+            return;
+        }
+        FragmentCache cache = FragmentCache.of(env.getConfiguration());
+        if (cache == null || Configuration.activeReload()) {
+            body.render(env.getOut());
+            return;
+        }
+
+        String key = key(params, env);
+        FragmentCache.Fragment fragment = cache.get(key);
+        if (fragment != null) {
+            for (Map.Entry<String, List<String>> entry : fragment.content.entrySet()) {
+                for (String chunk : entry.getValue()) {
+                    ContentTL.addContent(entry.getKey(), chunk);
+                }
+            }
+            env.getOut().write(fragment.output);
+            return;
+        }
+
+        Map<String, Integer> collected = sizes(ContentTL.getCollectedContent());
+        boolean pendingPage = ContentTL.hasPendingPage();
+        StringWriter writer = new StringWriter();
+        body.render(writer);
+        String output = writer.toString();
+        //output which needed a page of a streaming layout depends on the page, and is not kept
+        if (!pendingPage || ContentTL.hasPendingPage()) {
+            cache.put(key, output, added(collected, ContentTL.getCollectedContent()), ttl * 1000L);
+        }
+        env.getOut().write(output);
+    }
+
+    private int ttl(Map<?, ?> params) {
+        Object ttl = params.get("ttl");
+        if (ttl == null) {
+            return DEFAULT_TTL;
+        }
+        try {
+            int seconds = Integer.parseInt(ttl.toString().trim());
+            if (seconds >= 0) {
+                return seconds;
+            }
+        } catch (NumberFormatException ignore) {}
+        throw new IllegalArgumentException("parameter: 'ttl' must be a number of seconds, but it is: '" + ttl + "'");
+    }
+
+    /**
+     * Values of vary variables are prefixed with their length, so that different values never make the same key.
+     */
+    private String key(Map<?, ?> params, Environment env) throws TemplateModelException {
+        StringBuilder key = new StringBuilder(params.get("key").toString());
+        if (params.containsKey("vary")) {
+            for (String name : params.get("vary").toString().split(",")) {
+                name = name.trim();
+                TemplateModel value = env.getVariable(name);
+                key.append('|');
+                if (value == null && name.equals("locale")) {
+                    append(key, env.getLocale().toString());
+                } else if (value instanceof TemplateScalarModel) {
+                    append(key, ((TemplateScalarModel) value).getAsString());
+                } else if (value != null) {
+                    append(key, value.toString());
+                }
+            }
+        }
+        return key.toString();
+    }
+
+    private void append(StringBuilder key, String value) {
+        key.append(value.length()).append(':').append(value);
+    }
+
+    private Map<String, Integer> sizes(Map<String, List<String>> content) {
+        Map<String, Integer> sizes = new HashMap<>();
+        if (content != null) {
+            for (Map.Entry<String, List<String>> entry : content.entrySet()) {
+                sizes.put(entry.getKey(), entry.getValue().size());
+            }
+        }
+        return sizes;
+    }
+
+    private Map<String, List<String>> added(Map<String, Integer> sizes, Map<String, List<String>> content) {
+        Map<String, List<String>> added = new HashMap<>();
+        if (content != null) {
+            for (Map.Entry<String, List<String>> entry : content.entrySet()) {
+                Integer size = sizes.get(entry.getKey());
+                List<String> chunks = entry.getValue();
+                if (size == null || size < chunks.size()) {
+                    added.put(entry.getKey(), new ArrayList<>(chunks.subList(size == null ? 0 : size, chunks.size())));
+                }
+            }
+        }
+        return added;
+    }
+}
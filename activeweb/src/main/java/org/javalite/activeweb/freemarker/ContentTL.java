@@ -15,6 +15,9 @@ limitations under the License.
 */
 package org.javalite.activeweb.freemarker;
 
+import freemarker.template.TemplateModelException;
+import org.javalite.activeweb.ViewException;
+
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -25,16 +28,51 @@ import java.util.Map;
  */
 public class ContentTL {
     private static ThreadLocal<Map<String, List<String>>> contentTL = new ThreadLocal<>();
+    private static ThreadLocal<LayoutModel> pendingPageTL = new ThreadLocal<>();
 
     private ContentTL() {}
     
     static void reset(){
         contentTL.set(new HashMap<String, List<String>>());
+        pendingPageTL.remove();
+    }
+
+    /**
+     * Sets a page of a streaming layout which is not rendered yet. Content is not known until the page is rendered,
+     * so it will be rendered by {@link #getAllContent()}.
+     *
+     * @param page page, null if there is no such page.
+     */
+    static void setPendingPage(LayoutModel page) {
+        pendingPageTL.set(page);
     }
+
     public static Map<String, List<String>> getAllContent() {
+        LayoutModel page = pendingPageTL.get();
+        if (page != null) {
+            try {
+                page.renderPage();
+            } catch (TemplateModelException e) {
+                throw new ViewException(e);
+            }
+        }
         return contentTL.get();
     }
 
+    /**
+     * @return content collected so far, without rendering a pending page, null if there is no content yet.
+     */
+    static Map<String, List<String>> getCollectedContent() {
+        return contentTL.get();
+    }
+
+    /**
+     * @return true if there is a page of a streaming layout which is not rendered yet.
+     */
+    static boolean hasPendingPage() {
+        return pendingPageTL.get() != null;
+    }
+
     static void addContent(String name, String content) {
         if(contentTL.get().get(name) == null){
             contentTL.get().put(name, new ArrayList<String>());
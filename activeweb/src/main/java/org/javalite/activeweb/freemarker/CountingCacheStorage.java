@@ -0,0 +1,82 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package org.javalite.activeweb.freemarker;
+
+import freemarker.cache.CacheStorage;
+import freemarker.cache.CacheStorageWithGetSize;
+import freemarker.cache.ConcurrentCacheStorage;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Storage of FreeMarker template cache which counts hits and misses of another storage.
+ *
+ * @author Igor Polevoy
+ */
+class CountingCacheStorage implements ConcurrentCacheStorage, CacheStorageWithGetSize {
+
+    private final CacheStorage storage;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    CountingCacheStorage(CacheStorage storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public Object get(Object key) {
+        Object value = storage.get(key);
+        if (value == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        storage.put(key, value);
+    }
+
+    @Override
+    public void remove(Object key) {
+        storage.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        storage.clear();
+    }
+
+    @Override
+    public boolean isConcurrent() {
+        return storage instanceof ConcurrentCacheStorage && ((ConcurrentCacheStorage) storage).isConcurrent();
+    }
+
+    @Override
+    public int getSize() {
+        return storage instanceof CacheStorageWithGetSize ? ((CacheStorageWithGetSize) storage).getSize() : -1;
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+}
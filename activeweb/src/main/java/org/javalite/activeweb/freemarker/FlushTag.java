@@ -0,0 +1,54 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package org.javalite.activeweb.freemarker;
+
+import freemarker.core.Environment;
+import freemarker.template.TemplateDirectiveBody;
+import freemarker.template.TemplateDirectiveModel;
+import freemarker.template.TemplateException;
+import freemarker.template.TemplateModel;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Marks the end of a layout head, which can be sent to a browser before an action is executed, see
+ * <code>AppController#flushLayoutHead()</code>. Must be used at top level of a layout, not inside other tags:
+ *
+ * <pre>
+ * &lt;html&gt;
+ * &lt;head&gt;
+ *     &lt;link rel="stylesheet" href="${context_path}/css/main.css"&gt;
+ * &lt;/head&gt;
+ * &lt;@flush/&gt;
+ * &lt;body&gt;${page_content}&lt;/body&gt;
+ * &lt;/html&gt;
+ * </pre>
+ *
+ * In other cases it does nothing.
+ *
+ * @author Igor Polevoy
+ */
+public class FlushTag implements TemplateDirectiveModel {
+    @SuppressWarnings("rawtypes") //signature of TemplateDirectiveModel
+    public void execute(Environment env, Map params, TemplateModel[] loopVars, TemplateDirectiveBody body) throws TemplateException, IOException {
+        Writer out = env.getOut();
+        if (out instanceof LayoutWriter) {
+            ((LayoutWriter) out).mark();
+        }
+    }
+}
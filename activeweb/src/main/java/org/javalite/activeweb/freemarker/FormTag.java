@@ -27,8 +27,6 @@ import java.io.Writer;
 import java.util.HashMap;
 import java.util.Map;
 
-import static org.javalite.common.Util.blank;
-
 /**
  * This is a FreeMarker directive which is registered as  <code>&lt;@form... /&gt;</code> tag.
  * This tag generates an HTML form tag and has functionality specific for ActiveWeb.
@@ -119,9 +117,9 @@ import static org.javalite.common.Util.blank;
  *
  * @author Igor Polevoy
  */
-public class FormTag  extends FreeMarkerTag{
+public class FormTag  extends StreamingFreeMarkerTag{
     @Override
-    protected void render(Map params, String body, Writer writer) throws Exception {
+    protected void render(Map params, TagBody body, Writer writer) throws Exception {
 
         SimpleHash activeweb = (SimpleHash) get("activeweb");
         if(activeweb == null || !(params.containsKey("controller") || activeweb.toMap().containsKey("controller")))
@@ -139,11 +137,7 @@ public class FormTag  extends FreeMarkerTag{
             bodyPrefix = "\n\t<input type='hidden' name='_method' value='" + method + "' />";
         }
 
-        if(blank(body)){
-            body = "&nbsp;";
-        }
-
-        TagFactory tf = new TagFactory("form", bodyPrefix + body);
+        TagFactory tf = new TagFactory("form", bodyPrefix);
         Object contextPath = getContextPath();
         String action = params.get("action") == null? null: params.get("action").toString();
         String controllerPath = params.get("controller") == null? activeweb.get("controller").toString(): params.get("controller").toString();
@@ -175,6 +169,12 @@ public class FormTag  extends FreeMarkerTag{
         if(params.containsKey("data")){
             tf.textAttributes(params.get("data").toString());
         }
-        tf.write(writer);
+        tf.writeStartTag(writer);
+        if(body.isEmpty()){
+            writer.write("&nbsp;");
+        }else{
+            body.writeTo(writer);
+        }
+        tf.writeEndTag(writer);
     }
 }
@@ -0,0 +1,167 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package org.javalite.activeweb.freemarker;
+
+import freemarker.template.Configuration;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rendered fragments of pages, see {@link CacheTag}. Size of fragments is limited in bytes, and least recently
+ * used fragments are removed first when a new one does not fit. A fragment also expires after its time to live.
+ *
+ * @author Igor Polevoy
+ */
+class FragmentCache {
+
+    static final String ATTRIBUTE = "activeweb.fragments";
+    static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+
+    private final LinkedHashMap<String, Fragment> fragments = new LinkedHashMap<>(16, 0.75f, true);
+    private final long maxBytes;
+    private long bytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maxBytes maximum size of all fragments in bytes, 0 to keep none.
+     */
+    FragmentCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns cache of a configuration, kept as its custom attribute.
+     *
+     * @param config FreeMarker configuration.
+     * @return cache, or null if the configuration has none.
+     */
+    static FragmentCache of(Configuration config) {
+        Object cache = config.getCustomAttribute(ATTRIBUTE);
+        return cache instanceof FragmentCache ? (FragmentCache) cache : null;
+    }
+
+    /**
+     * @param key key of fragment.
+     * @return fragment which has not expired, null if not found.
+     */
+    Fragment get(String key) {
+        Fragment fragment;
+        synchronized (fragments) {
+            fragment = fragments.get(key);
+            if (fragment != null && fragment.expiresAt <= System.currentTimeMillis()) {
+                remove(key);
+                fragment = null;
+            }
+        }
+        if (fragment == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return fragment;
+    }
+
+    /**
+     * Adds a fragment, removing least recently used ones if needed. Fragment larger than the cache is not added.
+     *
+     * @param key key of fragment.
+     * @param output text of fragment.
+     * @param content chunks of content for a layout written by the fragment, see {@link ContentForTag}.
+     * @param ttlMillis time to live in milliseconds.
+     */
+    void put(String key, String output, Map<String, List<String>> content, long ttlMillis) {
+        Fragment fragment = new Fragment(output, content, System.currentTimeMillis() + ttlMillis);
+        if (fragment.bytes > maxBytes) {
+            return;
+        }
+        synchronized (fragments) {
+            remove(key);
+            fragments.put(key, fragment);
+            bytes += fragment.bytes;
+            Iterator<Fragment> eldest = fragments.values().iterator();
+            while (bytes > maxBytes) {
+                bytes -= eldest.next().bytes;
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes fragments with keys that start with a prefix.
+     *
+     * @param keyPrefix prefix of keys, empty string to remove all fragments.
+     */
+    void purge(String keyPrefix) {
+        synchronized (fragments) {
+            Iterator<Map.Entry<String, Fragment>> entries = fragments.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<String, Fragment> entry = entries.next();
+                if (entry.getKey().startsWith(keyPrefix)) {
+                    bytes -= entry.getValue().bytes;
+                    entries.remove();
+                }
+            }
+        }
+    }
+
+    long getBytes() {
+        synchronized (fragments) {
+            return bytes;
+        }
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    private void remove(String key) {
+        Fragment removed = fragments.remove(key);
+        if (removed != null) {
+            bytes -= removed.bytes;
+        }
+    }
+
+    static class Fragment {
+        final String output;
+        final Map<String, List<String>> content;
+        final long expiresAt;
+        final long bytes;
+
+        Fragment(String output, Map<String, List<String>> content, long expiresAt) {
+            this.output = output;
+            this.content = content;
+            this.expiresAt = expiresAt;
+            //chars of a String take two bytes
+            long size = output.length() * 2L;
+            for (Map.Entry<String, List<String>> entry : content.entrySet()) {
+                size += entry.getKey().length() * 2L;
+                for (String chunk : entry.getValue()) {
+                    size += chunk.length() * 2L;
+                }
+            }
+            this.bytes = size;
+        }
+    }
+}
@@ -20,12 +20,11 @@ import freemarker.template.*;
 import freemarker.template.SimpleHash;
 import freemarker.template.utility.DeepUnwrap;
 import org.javalite.activeweb.*;
+import org.javalite.activeweb.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.io.StringReader;
-import java.io.StringWriter;
 import java.io.Writer;
 import java.util.*;
 
@@ -49,15 +48,16 @@ public abstract class FreeMarkerTag implements TemplateDirectiveModel {
 
     public void execute(Environment env, Map params, TemplateModel[] loopVars, TemplateDirectiveBody body) throws TemplateException, IOException {
         FreeMarkerTL.setEnvironment(env);
-        StringWriter sw = new StringWriter();
-        if (body != null) {
-            body.render(sw);
-        }
+        TagBody tagBody = new TagBody(body);
         try{
-            render(params, sw.toString(), env.getOut());
+            render(params, tagBody, env.getOut());
         }catch (ViewException e){
             throw e;
         }catch(Exception e){
+            if(tagBody.isFailure(e)){ //errors of body are reported as they are, as if the body was a part of template
+                if(e instanceof TemplateException) throw (TemplateException) e;
+                throw (IOException) e;
+            }
             throw new ViewException(e);
         }
     }
@@ -104,6 +104,19 @@ public abstract class FreeMarkerTag implements TemplateDirectiveModel {
      */
     protected abstract void render(Map params, String body, Writer writer) throws Exception;
 
+    /**
+     * Renders body into a string and calls {@link #render(Map, String, Writer)}. Tags which write body directly
+     * to output extend {@link StreamingFreeMarkerTag}.
+     *
+     * @param params this is a list of parameters as provided to tag in HTML.
+     * @param body body of tag, rendered when used.
+     * @param writer writer to write output to.
+     * @throws Exception if any
+     */
+    protected void render(Map<?, ?> params, TagBody body, Writer writer) throws Exception {
+        render(params, body.asString(), writer);
+    }
+
 
     /**
      * Will throw {@link IllegalArgumentException} if a parameter on the list is missing
@@ -132,16 +145,35 @@ public abstract class FreeMarkerTag implements TemplateDirectiveModel {
 
     /**
      * Processes text as a FreeMarker template. Usually used to process an inner body of a tag.
+     * Parsed template is cached with text as a key, so that same text is not parsed again.
      *
      * @param text text of a template.
      * @param params map with parameters for processing. 
      * @param writer writer to write output to.
      */
     protected void process(String text, Map params, Writer writer){
+        merge(text, text, params, writer);
+    }
+
+    /**
+     * Processes text as a FreeMarker template, same as {@link #process(String, Map, Writer)}, but caches
+     * parsed template with a provided key. Use when text is large or expensive to compare, and can be identified by
+     * a short key, such as a name of a tag and its variant. Text must be the same every time a key is used by a tag,
+     * keys of different tag classes do not clash. When active reload is on, text is used as a key, so that changes
+     * of text are picked up.
+     *
+     * @param key key of a parsed template in cache.
+     * @param text text of a template.
+     * @param params map with parameters for processing.
+     * @param writer writer to write output to.
+     */
+    protected void process(String key, String text, Map<?, ?> params, Writer writer){
+        merge(Configuration.activeReload() ? text : getClass().getName() + ':' + key, text, params, writer);
+    }
 
+    private void merge(String key, String text, Object params, Writer writer){
         try{
-            Template t = new Template("temp", new StringReader(text), FreeMarkerTL.getEnvironment().getConfiguration());
-            t.process(params, writer);
+            InlineTemplateCache.template(FreeMarkerTL.getEnvironment().getConfiguration(), key, text).process(params, writer);
         }catch(Exception e){          
             throw new ViewException(e);
         }
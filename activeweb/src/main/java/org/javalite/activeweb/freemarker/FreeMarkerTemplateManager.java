@@ -15,6 +15,7 @@ limitations under the License.
 */
 package org.javalite.activeweb.freemarker;
 
+import freemarker.cache.CacheStorage;
 import freemarker.template.*;
 import org.javalite.activeweb.InitException;
 import org.javalite.activeweb.TemplateManager;
@@ -26,9 +27,12 @@ import org.slf4j.LoggerFactory;
 
 import javax.servlet.ServletContext;
 import java.io.*;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.javalite.common.Util.blank;
 
@@ -41,6 +45,10 @@ public class FreeMarkerTemplateManager extends TemplateManager {
     private String defaultLayout;
 
     private String location;
+    private boolean streamingLayouts;
+    private boolean warmUpTemplates;
+    private ServletContext servletContext;
+    private final ConcurrentHashMap<String, Boolean> layoutsWithoutHead = new ConcurrentHashMap<>();
 
     private Logger logger = LoggerFactory.getLogger(getClass());
 
@@ -48,6 +56,9 @@ public class FreeMarkerTemplateManager extends TemplateManager {
         config = new Configuration();
         config.setObjectWrapper(new DefaultObjectWrapper());
         config.setTemplateExceptionHandler(TemplateExceptionHandler.RETHROW_HANDLER);
+        config.setCacheStorage(new CountingCacheStorage(config.getCacheStorage()));
+        config.setCustomAttribute(InlineTemplateCache.ATTRIBUTE, new InlineTemplateCache(InlineTemplateCache.DEFAULT_SIZE));
+        config.setCustomAttribute(FragmentCache.ATTRIBUTE, new FragmentCache(FragmentCache.DEFAULT_MAX_BYTES));
         config.setSharedVariable("link_to", new LinkToTag());
         config.setSharedVariable("form", new FormTag());
         config.setSharedVariable("content", new ContentForTag());
@@ -59,11 +70,15 @@ public class FreeMarkerTemplateManager extends TemplateManager {
         config.setSharedVariable("debug", new DebugTag());
         config.setSharedVariable("select", new SelectTag());
         config.setSharedVariable("message", new MessageTag());
+        config.setSharedVariable("flush", new FlushTag());
+        config.setSharedVariable("cache", new CacheTag());
 
         AbstractFreeMarkerConfig freeMarkerConfig = org.javalite.activeweb.Configuration.getFreeMarkerConfig();
         if(freeMarkerConfig != null){
             freeMarkerConfig.setConfiguration(config);
             freeMarkerConfig.init();
+            streamingLayouts = freeMarkerConfig.isStreamingLayouts();
+            warmUpTemplates = freeMarkerConfig.isWarmUpTemplates();
         }
     }
 
@@ -74,6 +89,50 @@ public class FreeMarkerTemplateManager extends TemplateManager {
 
     @Override
     public void merge(Map<String, Object> input, String template, String layout, String format, Writer writer) {
+        merge(input, template, layout, format, writer, false);
+    }
+
+    @Override
+    public void mergeAfterLayoutHead(Map<String, Object> input, String template, String layout, String format, Writer writer) {
+        merge(input, template, layout, format, writer, true);
+    }
+
+    @Override
+    public boolean mergeLayoutHead(Map<String, Object> values, String layout, Writer writer) {
+        if (layoutsWithoutHead.containsKey(layout)) {
+            return false;
+        }
+        String templateName = layout + ".ftl";
+        LayoutWriter headWriter = new LayoutWriter(new StringWriter(), true);
+        boolean development = org.javalite.activeweb.Configuration.getEnv().equals("development");
+        try {
+            if(development){
+                config.clearTemplateCache();
+            }
+            ContentTL.reset();
+            config.getTemplate(templateName).process(values, headWriter);
+        } catch (Exception e) {
+            if (!headWriter.isMarked()) {
+                logger.warn("Failed to render head of layout: '" + templateName + "', layout will be rendered after action", e);
+            }
+        } finally {
+            FreeMarkerTL.setEnvironment(null);
+        }
+        if (!headWriter.isMarked()) {
+            if (!development) { //remembered until restart, a layout is not rendered twice on every request
+                layoutsWithoutHead.put(layout, Boolean.TRUE);
+            }
+            return false;
+        }
+        try {
+            writer.write(headWriter.getTarget().toString());
+        } catch (IOException e) {
+            throw new ViewException(e);
+        }
+        return true;
+    }
+
+    private void merge(Map<String, Object> input, String template, String layout, String format, Writer writer, boolean afterHead) {
 
         String templateName = blank(format)? template + ".ftl" : template + "." + format + ".ftl";
         try {
@@ -86,6 +145,24 @@ public class FreeMarkerTemplateManager extends TemplateManager {
 
             if(layout == null){//no layout
                 pageTemplate.process(input, writer);
+            }else if(streamingLayouts || afterHead){
+                Template layoutTemplate = config.getTemplate(layout + ".ftl");
+                LayoutModel layoutModel = new LayoutModel(input, pageTemplate, config.getObjectWrapper());
+                ContentTL.setPendingPage(layoutModel);
+                try {
+                    layoutTemplate.process(layoutModel, afterHead ? new LayoutWriter(writer, false) : writer);
+                    //a layout without page_content still renders the page, as buffered layouts do
+                    layoutModel.renderPage();
+                } catch (Exception e) {
+                    //report a failure of a page, rather than of a layout which asked for it
+                    if (layoutModel.getPageFailure() != null) {
+                        throw layoutModel.getPageFailure();
+                    }
+                    throw e;
+                } finally {
+                    ContentTL.setPendingPage(null);
+                    FreeMarkerTL.setEnvironment(null);
+                }
             }else{ // with layout
                  //Generate the template itself
                 StringWriter pageWriter = new StringWriter();
@@ -122,6 +199,7 @@ public class FreeMarkerTemplateManager extends TemplateManager {
     
     @Override
     public void setServletContext(ServletContext ctx) {
+        servletContext = ctx;
         if(location == null)
             config.setServletContextForTemplateLoading(ctx, "WEB-INF/views/");
     }
@@ -136,6 +214,145 @@ public class FreeMarkerTemplateManager extends TemplateManager {
         config.setClassForTemplateLoading(this.getClass(), path);
     }
 
+    /**
+     * Parses all templates and keeps them in cache, if enabled by {@link AbstractFreeMarkerConfig#setWarmUpTemplates(boolean)}.
+     * Does nothing in development environment.
+     *
+     * @throws InitException if some templates have syntax errors.
+     */
+    @Override
+    public void warmUp() {
+        if (!warmUpTemplates || org.javalite.activeweb.Configuration.getEnv().equals("development")) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        List<String> names = new ArrayList<>();
+        if (location != null) {
+            findTemplates(new File(location), "/", names);
+        } else if (servletContext != null) {
+            findTemplates("/WEB-INF/views/", names);
+        }
+        StringBuilder errors = new StringBuilder();
+        for (String name : names) {
+            try {
+                config.getTemplate(name);
+            } catch (IOException e) {
+                errors.append(System.lineSeparator()).append(name).append(": ").append(e.getMessage());
+            }
+        }
+        if (errors.length() > 0) {
+            throw new InitException("Failed to parse templates:" + errors);
+        }
+        logger.info("Parsed " + names.size() + " templates in " + (System.currentTimeMillis() - start) + " milliseconds");
+    }
+
+    /**
+     * Same as {@link AbstractFreeMarkerConfig#setWarmUpTemplates(boolean)}.
+     *
+     * @param warmUpTemplates true to parse templates at start.
+     */
+    public void setWarmUpTemplates(boolean warmUpTemplates) {
+        this.warmUpTemplates = warmUpTemplates;
+    }
+
+    private void findTemplates(File dir, String path, List<String> names) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                findTemplates(file, path + file.getName() + "/", names);
+            } else if (file.getName().endsWith(".ftl")) {
+                names.add(path + file.getName());
+            }
+        }
+    }
+
+    private void findTemplates(String resourcePath, List<String> names) {
+        Set<String> paths = servletContext.getResourcePaths(resourcePath);
+        if (paths == null) {
+            return;
+        }
+        for (String path : paths) {
+            if (path.endsWith("/")) {
+                findTemplates(path, names);
+            } else if (path.endsWith(".ftl")) {
+                names.add(path.substring("/WEB-INF/views".length()));
+            }
+        }
+    }
+
+    /**
+     * @return number of times a template was found in template cache, see
+     * {@link AbstractFreeMarkerConfig#setTemplateCacheSize(int, int)}.
+     */
+    public long getTemplateCacheHits() {
+        CacheStorage storage = config.getCacheStorage();
+        return storage instanceof CountingCacheStorage ? ((CountingCacheStorage) storage).getHits() : 0;
+    }
+
+    /**
+     * @return number of times a template was not in template cache, and was loaded and parsed.
+     */
+    public long getTemplateCacheMisses() {
+        CacheStorage storage = config.getCacheStorage();
+        return storage instanceof CountingCacheStorage ? ((CountingCacheStorage) storage).getMisses() : 0;
+    }
+
+    /**
+     * @return number of times text processed by a tag was found in cache of parsed templates, see
+     * {@link FreeMarkerTag#process(String, Map, Writer)}.
+     */
+    public long getInlineTemplateCacheHits() {
+        InlineTemplateCache cache = InlineTemplateCache.of(config);
+        return cache == null ? 0 : cache.getHits();
+    }
+
+    /**
+     * @return number of times text processed by a tag was not in cache, and was parsed.
+     */
+    public long getInlineTemplateCacheMisses() {
+        InlineTemplateCache cache = InlineTemplateCache.of(config);
+        return cache == null ? 0 : cache.getMisses();
+    }
+
+    @Override
+    public void purgeFragments(String keyPrefix) {
+        FragmentCache cache = FragmentCache.of(config);
+        if (cache != null) {
+            cache.purge(keyPrefix);
+        }
+    }
+
+    /**
+     * @return number of times output of a <code>&lt;@cache&gt;</code> tag was found in cache, see {@link CacheTag}.
+     */
+    public long getFragmentCacheHits() {
+        FragmentCache cache = FragmentCache.of(config);
+        return cache == null ? 0 : cache.getHits();
+    }
+
+    /**
+     * @return number of times output of a <code>&lt;@cache&gt;</code> tag was not in cache, and body was rendered.
+     */
+    public long getFragmentCacheMisses() {
+        FragmentCache cache = FragmentCache.of(config);
+        return cache == null ? 0 : cache.getMisses();
+    }
+
+    /**
+     * Switches on streaming of layouts. By default a page is rendered into memory before its layout. In streaming
+     * mode a layout is rendered directly to the response, and a page is rendered when the layout first uses
+     * <code>page_content</code> or content of a page. Layout text before that is sent sooner, and a page is not
+     * copied into another map of values. Can also be set in {@link AbstractFreeMarkerConfig}.
+     *
+     * @param streamingLayouts true to stream layouts.
+     */
+    public void setStreamingLayouts(boolean streamingLayouts) {
+        this.streamingLayouts = streamingLayouts;
+    }
+
     public void setDefaultLayout(String layoutPath) {
         defaultLayout = layoutPath;
     }
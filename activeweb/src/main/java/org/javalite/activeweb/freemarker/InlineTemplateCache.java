@@ -0,0 +1,118 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package org.javalite.activeweb.freemarker;
+
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parsed templates of text processed by tags, see {@link FreeMarkerTag#process(String, Map, java.io.Writer)}.
+ * Keeps a limited number of most recently used templates. A cache is kept as a custom attribute of a FreeMarker
+ * configuration, because a template can only be used with the configuration it was parsed with.
+ *
+ * @author Igor Polevoy
+ */
+class InlineTemplateCache {
+
+    static final String ATTRIBUTE = "activeweb.inline_templates";
+    static final int DEFAULT_SIZE = 500;
+
+    private final Map<String, Template> templates;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maxSize maximum number of templates to keep, 0 to keep none.
+     */
+    InlineTemplateCache(final int maxSize) {
+        templates = new LinkedHashMap<String, Template>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Template> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns cache of a configuration.
+     *
+     * @param config FreeMarker configuration.
+     * @return cache, or null if the configuration has none.
+     */
+    static InlineTemplateCache of(Configuration config) {
+        Object cache = config.getCustomAttribute(ATTRIBUTE);
+        return cache instanceof InlineTemplateCache ? (InlineTemplateCache) cache : null;
+    }
+
+    /**
+     * Returns a parsed template from cache of a configuration, or parses text if the configuration has no cache.
+     *
+     * @param config FreeMarker configuration.
+     * @param key key of template, see {@link #get(String, String, Configuration)}.
+     * @param text text of template.
+     * @return parsed template.
+     */
+    static Template template(Configuration config, String key, String text) throws IOException {
+        InlineTemplateCache cache = of(config);
+        return cache == null ? new Template("temp", new StringReader(text), config) : cache.get(key, text, config);
+    }
+
+    /**
+     * Returns a parsed template, parsing the text if the key is not in cache.
+     *
+     * @param key key of template, usually text itself.
+     * @param text text of template.
+     * @param config configuration to parse text with.
+     * @return parsed template.
+     */
+    Template get(String key, String text, Configuration config) throws IOException {
+        Template template;
+        synchronized (templates) {
+            template = templates.get(key);
+        }
+        if (template != null) {
+            hits.incrementAndGet();
+            return template;
+        }
+        misses.incrementAndGet();
+        //parsing outside of lock, a template parsed twice by concurrent threads is harmless
+        template = new Template("temp", new StringReader(text), config);
+        synchronized (templates) {
+            templates.put(key, template);
+        }
+        return template;
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    int size() {
+        synchronized (templates) {
+            return templates.size();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package org.javalite.activeweb.freemarker;
+
+import freemarker.core.Environment;
+import freemarker.template.*;
+import org.javalite.common.Util;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data model of a layout in streaming mode, see {@link FreeMarkerTemplateManager#setStreamingLayouts(boolean)}.
+ * Values passed to a page are looked up without copying, and the page is rendered when the layout first needs
+ * <code>page_content</code>, content of a <code>&lt;@content for=""&gt;</code> block, or uses
+ * <code>&lt;@yield&gt;</code>. Everything the layout writes before that goes directly to the response.
+ * <p></p>
+ * Content blocks are joined only when used. As with a buffered layout, after the page is rendered content blocks
+ * take precedence over values with the same names.
+ *
+ * @author Igor Polevoy
+ */
+class LayoutModel implements TemplateHashModelEx {
+
+    static final String PAGE_CONTENT = "page_content";
+
+    private final Map<String, Object> input;
+    private final Template pageTemplate;
+    private final ObjectWrapper wrapper;
+    private String page;
+    private Exception pageFailure;
+
+    LayoutModel(Map<String, Object> input, Template pageTemplate, ObjectWrapper wrapper) {
+        this.input = input;
+        this.pageTemplate = pageTemplate;
+        this.wrapper = wrapper;
+    }
+
+    @Override
+    public TemplateModel get(String key) throws TemplateModelException {
+        if (PAGE_CONTENT.equals(key)) {
+            final String content = renderPage();
+            return new TemplateScalarModel() {
+                @Override
+                public String getAsString() {
+                    return content;
+                }
+            };
+        }
+        if (page != null || !input.containsKey(key)) {
+            renderPage();
+            final List<String> content = ContentTL.getAllContent().get(key);
+            if (content != null) {
+                return new TemplateScalarModel() {
+                    @Override
+                    public String getAsString() {
+                        return Util.join(content, " ");
+                    }
+                };
+            }
+        }
+        return wrapper.wrap(input.get(key));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return false;
+    }
+
+    @Override
+    public int size() throws TemplateModelException {
+        return names().size();
+    }
+
+    @Override
+    public TemplateCollectionModel keys() throws TemplateModelException {
+        return new SimpleCollection(names(), wrapper);
+    }
+
+    @Override
+    public TemplateCollectionModel values() throws TemplateModelException {
+        List<TemplateModel> values = new ArrayList<>();
+        for (String name : names()) {
+            values.add(get(name));
+        }
+        return new SimpleCollection(values, wrapper);
+    }
+
+    /**
+     * Renders the page unless it has already been rendered.
+     *
+     * @return text of the page.
+     */
+    String renderPage() throws TemplateModelException {
+        if (pageFailure != null) {
+            throw new TemplateModelException(pageFailure);
+        }
+        if (page == null) {
+            ContentTL.setPendingPage(null);
+            //tags of the page replace current environment, layout tags that follow expect it back
+            Environment layoutEnvironment = FreeMarkerTL.getEnvironment();
+            StringWriter writer = new StringWriter();
+            try {
+                pageTemplate.process(input, writer);
+            } catch (Exception e) {
+                pageFailure = e;
+                throw new TemplateModelException(e);
+            } finally {
+                FreeMarkerTL.setEnvironment(layoutEnvironment);
+            }
+            page = writer.toString();
+        }
+        return page;
+    }
+
+    /**
+     * @return exception thrown by the page, null if the page was rendered or was not needed.
+     */
+    Exception getPageFailure() {
+        return pageFailure;
+    }
+
+    private List<String> names() throws TemplateModelException {
+        renderPage();
+        List<String> names = new ArrayList<>(input.keySet());
+        names.add(PAGE_CONTENT);
+        for (String name : ContentTL.getAllContent().keySet()) {
+            if (!input.containsKey(name)) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package org.javalite.activeweb.freemarker;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes one part of a layout split by {@link FlushTag}: either the head, or the rest of the layout after the tag.
+ *
+ * @author Igor Polevoy
+ */
+class LayoutWriter extends Writer {
+
+    /**
+     * Stops rendering of a head when the flush marker is reached.
+     */
+    static final HeadEnd HEAD_END = new HeadEnd();
+
+    private final Writer target;
+    private final boolean head;
+    private boolean marked;
+
+    /**
+     * @param target writer to pass output to.
+     * @param head true to pass output before the marker and stop at the marker, false to pass output after the marker.
+     */
+    LayoutWriter(Writer target, boolean head) {
+        this.target = target;
+        this.head = head;
+    }
+
+    void mark() {
+        marked = true;
+        if (head) {
+            throw HEAD_END;
+        }
+    }
+
+    Writer getTarget() {
+        return target;
+    }
+
+    boolean isMarked() {
+        return marked;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        if (head != marked) {
+            target.write(cbuf, off, len);
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        if (head != marked) {
+            target.write(str, off, len);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (head != marked) {
+            target.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+
+    static final class HeadEnd extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private HeadEnd() {
+            super("end of layout head", null, false, false);
+        }
+    }
+}
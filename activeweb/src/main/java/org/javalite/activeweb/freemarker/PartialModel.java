@@ -0,0 +1,124 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package org.javalite.activeweb.freemarker;
+
+import freemarker.core.Environment;
+import freemarker.template.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Data model of a partial rendered by {@link RenderTag}. Variables of a partial are layered without copying:
+ * values of the current item of a collection, then parameters of the tag, then variables of the template which
+ * renders the partial. The same instance is reused for all items of a collection.
+ *
+ * @author Igor Polevoy
+ */
+class PartialModel implements TemplateHashModelEx {
+
+    private final Environment parent;
+    private final Map<String, TemplateModel> params;
+    private final String itemName;
+    private final String counterName;
+    private TemplateModel item;
+    private int counter;
+    private boolean last;
+
+    /**
+     * @param parent environment of template which renders the partial.
+     * @param params parameters of the tag.
+     * @param itemName name of the partial, which is also a name of a collection item. Null if there is no collection.
+     */
+    PartialModel(Environment parent, Map<String, TemplateModel> params, String itemName) {
+        this.parent = parent;
+        this.params = params;
+        this.itemName = itemName;
+        this.counterName = itemName == null ? null : itemName + "_counter";
+    }
+
+    /**
+     * Moves to the next item of a collection.
+     *
+     * @param item item.
+     * @param counter index of item.
+     * @param last true if this is the last item.
+     */
+    void setItem(TemplateModel item, int counter, boolean last) {
+        this.item = item;
+        this.counter = counter;
+        this.last = last;
+    }
+
+    @Override
+    public TemplateModel get(String key) throws TemplateModelException {
+        if (itemName != null) {
+            if (key.equals(itemName)) {
+                return item;
+            } else if (key.equals(counterName)) {
+                return new SimpleNumber(counter);
+            } else if (key.equals("first")) {
+                return counter == 0 ? TemplateBooleanModel.TRUE : TemplateBooleanModel.FALSE;
+            } else if (key.equals("last")) {
+                return last ? TemplateBooleanModel.TRUE : TemplateBooleanModel.FALSE;
+            }
+        }
+        TemplateModel value = params.get(key);
+        return value != null ? value : parent.getVariable(key);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return false;
+    }
+
+    @Override
+    public int size() throws TemplateModelException {
+        return names().size();
+    }
+
+    @Override
+    public TemplateCollectionModel keys() throws TemplateModelException {
+        return new SimpleCollection(names(), parent.getObjectWrapper());
+    }
+
+    @Override
+    public TemplateCollectionModel values() throws TemplateModelException {
+        List<TemplateModel> values = new ArrayList<>();
+        for (String name : names()) {
+            values.add(get(name));
+        }
+        return new SimpleCollection(values, parent.getObjectWrapper());
+    }
+
+    private Set<String> names() throws TemplateModelException {
+        Set<String> names = new LinkedHashSet<>();
+        for (Object name : parent.getKnownVariableNames()) {
+            names.add(name.toString());
+        }
+        names.addAll(params.keySet());
+        if (itemName != null) {
+            names.add(itemName);
+            names.add(counterName);
+            names.add("first");
+            names.add("last");
+        }
+        return names;
+    }
+}
@@ -23,9 +23,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * Required attribute: partial
@@ -61,27 +59,26 @@ public class RenderTag implements TemplateDirectiveModel {
 
         LOGGER.debug("rendering: " + partialPath + ".ftl" );
 
+        @SuppressWarnings("unchecked") //FreeMarker passes parameters of a directive as models
+        Map<String, TemplateModel> partialParams = params;
         if(!params.containsKey("collection")){
-            SimpleHash envValues = getHash(env);
-            envValues.putAll(params);
-            partialTemplate.process(envValues, env.getOut());
+            partialTemplate.process(new PartialModel(env, partialParams, null), env.getOut());
         }else{
-            //TODO: check the type
             if(params.get("collection") == null){
                 throw new IllegalArgumentException("collection must be provided!");
             }
-            List collection = ((SimpleSequence)params.get("collection")).toList();
-            for(int i = 0; i < collection.size(); i++){
-                SimpleHash hash = getHash(env);
-                hash.putAll(params);
-                hash.put( partialName, collection.get(i));
-                hash.put( partialName + "_counter", i);
-                hash.put( "first", i == 0);
-                hash.put( "last", i == collection.size()  - 1);
-                partialTemplate.process(hash, env.getOut());
-
-                if(i < collection.size() - 1 && spacerTemplate != null){
-                    spacerTemplate.process(hash, env.getOut());
+            if(!(params.get("collection") instanceof TemplateSequenceModel)){
+                throw new IllegalArgumentException("collection must be a list");
+            }
+            TemplateSequenceModel collection = (TemplateSequenceModel) params.get("collection");
+            PartialModel model = new PartialModel(env, partialParams, partialName);
+            int size = collection.size();
+            for(int i = 0; i < size; i++){
+                model.setItem(collection.get(i), i, i == size - 1);
+                partialTemplate.process(model, env.getOut());
+
+                if(i < size - 1 && spacerTemplate != null){
+                    spacerTemplate.process(model, env.getOut());
                 }
             }
         }
@@ -111,13 +108,4 @@ public class RenderTag implements TemplateDirectiveModel {
 
         return templatePath;
     }
-
-    private SimpleHash getHash(Environment env) throws TemplateModelException {
-        Set names = env.getKnownVariableNames();
-        SimpleHash simpleHash = new SimpleHash();
-        for(Object name: names){
-            simpleHash.put(name.toString(),env.getVariable(name.toString()));
-        }
-        return simpleHash;
-    }
 }
\ No newline at end of file
@@ -59,10 +59,10 @@ import java.util.Map;
  *
  * @author Igor Polevoy: 4/12/12 1:13 PM
  */
-public class SelectTag extends FreeMarkerTag {
+public class SelectTag extends StreamingFreeMarkerTag {
 
     @Override
-    protected void render(Map params, String body, Writer writer) throws Exception {
+    protected void render(Map params, TagBody body, Writer writer) throws Exception {
 
         validateParamsPresence(params, "list");
 
@@ -82,9 +82,18 @@ public class SelectTag extends FreeMarkerTag {
             }
         }
 
+        TagFactory selectTf = new TagFactory("select", null);
+        selectTf.addAttributesExcept(params, "list", "data");
+        if(params.containsKey("data")){
+            selectTf.textAttributes(params.get("data").toString());
+        }
+        if(body.isEmpty() && options.isEmpty()){
+            selectTf.write(writer);
+            return;
+        }
 
-        StringBuffer optionsBuffer  = new StringBuffer();
-
+        selectTf.writeStartTag(writer);
+        body.writeTo(writer);
         for(Object o: options){
             SelectOption option = (SelectOption) o;
             TagFactory tf = new TagFactory("option", option.getLabel());
@@ -97,15 +106,8 @@ public class SelectTag extends FreeMarkerTag {
             if(option.isSelected()){
                 tf.attribute("selected", "true");
             }
-            optionsBuffer.append(tf.toString());
+            tf.write(writer);
         }
-
-        TagFactory selectTf = new TagFactory("select", body + optionsBuffer);
-        selectTf.addAttributesExcept(params, "list", "data");
-        if(params.containsKey("data")){
-            selectTf.textAttributes(params.get("data").toString());
-        }
-        selectTf.write(writer);
-
+        selectTf.writeEndTag(writer);
     }
 }
@@ -0,0 +1,47 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package org.javalite.activeweb.freemarker;
+
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Base class for tags which write their body directly to output, without rendering it into a string first.
+ *
+ * @author Igor Polevoy
+ */
+public abstract class StreamingFreeMarkerTag extends FreeMarkerTag {
+
+    /**
+     * Implement this method in a concrete subclass.
+     *
+     * @param params this is a list of parameters as provided to tag in HTML.
+     * @param body body of tag, rendered when used.
+     * @param writer writer to write output to.
+     * @throws Exception if any
+     */
+    @Override
+    protected abstract void render(Map<?, ?> params, TagBody body, Writer writer) throws Exception;
+
+    /**
+     * Renders a body given as a string with {@link #render(Map, TagBody, Writer)}.
+     */
+    @Override
+    @SuppressWarnings("rawtypes") //overrides raw signature of FreeMarkerTag
+    protected void render(Map params, String body, Writer writer) throws Exception {
+        render(params, new TagBody(body), writer);
+    }
+}
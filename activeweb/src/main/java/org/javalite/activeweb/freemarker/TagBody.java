@@ -0,0 +1,99 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package org.javalite.activeweb.freemarker;
+
+import freemarker.template.TemplateDirectiveBody;
+import freemarker.template.TemplateException;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+/**
+ * Body of a {@link FreeMarkerTag}, which is rendered only when a tag uses it. A tag can write the body directly to
+ * output with {@link #writeTo(Writer)}, or get it as a string with {@link #asString()}.
+ *
+ * @author Igor Polevoy
+ */
+public final class TagBody {
+
+    private final TemplateDirectiveBody body;
+    private String text;
+    private Exception failure;
+
+    TagBody(TemplateDirectiveBody body) {
+        this.body = body;
+    }
+
+    TagBody(String text) {
+        this.body = null;
+        this.text = text;
+    }
+
+    /**
+     * @return true if tag has no body.
+     */
+    public boolean isEmpty() {
+        return body == null && (text == null || text.isEmpty());
+    }
+
+    /**
+     * Renders body to a writer. If the body was already rendered by {@link #asString()}, the string is written.
+     *
+     * @param writer writer to render body to.
+     */
+    public void writeTo(Writer writer) throws TemplateException, IOException {
+        if (text != null) {
+            writer.write(text);
+        } else if (body != null) {
+            render(writer);
+        }
+    }
+
+    /**
+     * Renders body into a string. The string is kept, and returned on following calls.
+     *
+     * @return text of body, empty string if tag has no body.
+     */
+    public String asString() throws TemplateException, IOException {
+        if (text == null) {
+            if (body == null) {
+                text = "";
+            } else {
+                StringWriter writer = new StringWriter();
+                render(writer);
+                text = writer.toString();
+            }
+        }
+        return text;
+    }
+
+    /**
+     * @return true if exception was thrown by the body, rather than by a tag.
+     */
+    boolean isFailure(Exception e) {
+        return e == failure;
+    }
+
+    private void render(Writer writer) throws TemplateException, IOException {
+        try {
+            body.render(writer);
+        } catch (TemplateException | IOException e) {
+            failure = e;
+            throw e;
+        }
+    }
+}
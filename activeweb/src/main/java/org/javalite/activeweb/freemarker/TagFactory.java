@@ -13,24 +13,43 @@ WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
 See the License for the specific language governing permissions and 
 limitations under the License. 
 */
-
 package org.javalite.activeweb.freemarker;
 
+import freemarker.template.TemplateException;
 import org.javalite.common.Util;
 
-import java.io.StringWriter;
+import java.io.IOException;
 import java.io.Writer;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
 /**
+ * Writes an HTML element. Markup is formatted in a reused buffer, and written to a writer with one call
+ * per start or end tag.
+ *
  * @author Igor Polevoy
  */
 public class TagFactory {
+
+    //buffers larger than this are not kept for next tags of a thread
+    private static final int MAX_POOLED_CHARS = 8 * 1024;
+    private static final ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+    };
+    private static final ThreadLocal<char[]> CHARS = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[256];
+        }
+    };
+
     private String name, body, textAttributes;
-    private List<Attribute> attributes = new ArrayList<>();
+    private String[] attributes = new String[8]; // name, value, name, value...
+    private int attributeCount;
 
 
     public TagFactory(String name, String body) {
@@ -43,50 +62,115 @@ public class TagFactory {
     }
 
     public void attribute(String name, String value) {
-        attributes.add(new Attribute(name, value));
-
+        if (attributeCount * 2 == attributes.length) {
+            attributes = Arrays.copyOf(attributes, attributes.length * 2);
+        }
+        attributes[attributeCount * 2] = name;
+        attributes[attributeCount * 2 + 1] = value;
+        attributeCount++;
     }
 
     @Override
     public String toString() {
-        StringWriter sw = new StringWriter();
-        write(sw);
-        return sw.toString();
+        StringBuilder sb = new StringBuilder();
+        appendStartTag(sb, Util.blank(body));
+        if (!Util.blank(body)) {
+            sb.append(body);
+            appendEndTag(sb);
+        }
+        return sb.toString();
     }
 
     public void write(Writer w) {
-
         try {
-            w.write("<");
-            w.write(name);
-            for (Attribute a : attributes) {
-                w.write(" ");
-                w.write(a.name());
-                w.write("=");
-                w.write("\"");
-                w.write(a.value());
-                w.write("\"");
+            boolean empty = Util.blank(body);
+            StringBuilder sb = buffer();
+            appendStartTag(sb, empty);
+            write(sb, w);
+            if (!empty) {
+                w.write(body);
+                appendEndTag(sb = buffer());
+                write(sb, w);
             }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
 
+    /**
+     * Writes an element with a body of a tag, which is rendered directly to the writer. Text passed to constructor
+     * is written before the body. The element is closed with an end tag even if body is empty.
+     *
+     * @param body body of tag.
+     * @param w writer to write to.
+     */
+    public void write(TagBody body, Writer w) throws TemplateException, IOException {
+        writeStartTag(w);
+        body.writeTo(w);
+        writeEndTag(w);
+    }
 
-            if(textAttributes != null){
-                w.write(" ");
-                w.write(textAttributes);
-            }
+    /**
+     * Writes start tag and text passed to constructor. Use to write content of the element directly to a writer.
+     *
+     * @param w writer to write to.
+     */
+    public void writeStartTag(Writer w) throws IOException {
+        StringBuilder sb = buffer();
+        appendStartTag(sb, false);
+        if (body != null) {
+            sb.append(body);
+        }
+        write(sb, w);
+    }
 
-            if(Util.blank(body)){
-                w.write("/>");
-            }else{
-                w.write(">");
-                w.write(body);
-                w.write("</");
-                w.write(name);
-                w.write(">");
-            }
+    /**
+     * Writes end tag of the element.
+     *
+     * @param w writer to write to.
+     */
+    public void writeEndTag(Writer w) throws IOException {
+        StringBuilder sb = buffer();
+        appendEndTag(sb);
+        write(sb, w);
+    }
 
+    private void appendStartTag(StringBuilder sb, boolean selfClosing) {
+        sb.append('<').append(name);
+        for (int i = 0; i < attributeCount; i++) {
+            sb.append(' ').append(attributes[i * 2]).append("=\"").append(attributes[i * 2 + 1]).append('"');
+        }
+        if (textAttributes != null) {
+            sb.append(' ').append(textAttributes);
+        }
+        sb.append(selfClosing ? "/>" : ">");
+    }
 
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+    private void appendEndTag(StringBuilder sb) {
+        sb.append("</").append(name).append('>');
+    }
+
+    private static StringBuilder buffer() {
+        StringBuilder sb = BUFFER.get();
+        sb.setLength(0);
+        return sb;
+    }
+
+    private static void write(StringBuilder sb, Writer w) throws IOException {
+        int length = sb.length();
+        char[] chars = CHARS.get();
+        if (chars.length < length) {
+            if (length > MAX_POOLED_CHARS) {
+                chars = new char[length];
+            } else {
+                chars = new char[Math.min(Math.max(length, chars.length * 2), MAX_POOLED_CHARS)];
+                CHARS.set(chars);
+            }
+        }
+        sb.getChars(0, length, chars, 0);
+        w.write(chars, 0, length);
+        if (sb.capacity() > MAX_POOLED_CHARS) {
+            BUFFER.remove();
         }
     }
 
@@ -104,23 +188,4 @@ public class TagFactory {
             }
         }
     }
-
-    class Attribute {
-        private String name, value;
-
-        Attribute(String name, String value) {
-            this.name = name;
-            this.value = value;
-        }
-
-        public String name() {
-            return name;
-        }
-
-        public String value() {
-            return value;
-        }
-    }
 }
-
-
@@ -0,0 +1,38 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License"); 
+you may not use this file except in compliance with the License. 
+You may obtain a copy of the License at 
+
+http://www.apache.org/licenses/LICENSE-2.0 
+
+Unless required by applicable law or agreed to in writing, software 
+distributed under the License is distributed on an "AS IS" BASIS, 
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+See the License for the specific language governing permissions and 
+limitations under the License. 
+*/
+package app.controllers;
+
+import org.javalite.activeweb.AppController;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * @author Igor Polevoy
+ */
+public class AsyncController extends AppController {
+
+    public static volatile CompletableFuture<String> pending;
+
+    public void index(){
+        async(pending, name -> respond("hello " + name));
+    }
+
+    public CompletionStage<Void> background(){
+        respond("done");
+        return CompletableFuture.runAsync(() -> {});
+    }
+}
@@ -0,0 +1,68 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package app.controllers;
+
+import org.javalite.activeweb.AppController;
+import org.javalite.activeweb.annotations.CachePage;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author Igor Polevoy
+ */
+public class CachedPageController extends AppController {
+
+    public static int calls;
+    public static volatile CompletableFuture<String> pending;
+
+    @CachePage
+    public void index() {
+        calls++;
+        header("X-Calls", calls);
+        respond("page " + calls + " of " + param("name"));
+    }
+
+    @CachePage(vary = "Accept-Language")
+    public void localized() {
+        calls++;
+        respond(header("Accept-Language") + " " + calls);
+    }
+
+    @CachePage(ttl = 0)
+    public void expired() {
+        calls++;
+        respond("expired " + calls);
+    }
+
+    @CachePage
+    public void withSession() {
+        calls++;
+        session("visited", true);
+        respond("session " + calls);
+    }
+
+    @CachePage
+    public void missing() {
+        calls++;
+        respond("missing " + calls).status(404);
+    }
+
+    @CachePage
+    public void later() {
+        calls++;
+        async(pending, name -> respond("later " + name + " " + calls));
+    }
+}
@@ -0,0 +1,98 @@
+package org.javalite.activeweb;
+
+import org.javalite.common.JsonHelper;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.javalite.common.Collections.map;
+
+/**
+ * Compares formatting of an access log record as {@link RequestDispatcher} used to do it, with a map serialized by
+ * {@link JsonHelper}, to {@link AccessLog}. Only formatting is measured, records are not written. This is not a spec,
+ * it is executed manually:
+ *
+ * <pre>
+ *     mvn test-compile exec:java -Dexec.mainClass="org.javalite.activeweb.AccessLogBenchmark" -Dexec.classpathScope=test
+ * </pre>
+ */
+public class AccessLogBenchmark {
+
+    private static final int WARMUP_RECORDS = 200000;
+    private static final int RECORDS = 2000000;
+
+    public static void main(String[] args) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/books/show/1");
+        request.addHeader("User-Agent", "Mozilla/5.0");
+        request.addHeader("Accept", "text/html");
+        request.addHeader("X-Request-Id", "4f1c2a");
+        Configuration.logHeaders("X-Request-Id");
+
+        withMap(request, WARMUP_RECORDS);
+        withEntry(request, WARMUP_RECORDS);
+
+        report("map", withMap(request, RECORDS));
+        report("entry", withEntry(request, RECORDS));
+    }
+
+    private static long withMap(MockHttpServletRequest request, int records) {
+        long start = System.nanoTime();
+        long length = 0;
+        for (int i = 0; i < records; i++) {
+            Map<String, Object> log = map(
+                    "controller", "app.controllers.BooksController",
+                    "action", "show",
+                    "duration_millis", 3L,
+                    "method", request.getMethod(),
+                    "url", request.getRequestURL().toString(),
+                    "remote_ip", request.getRemoteAddr(),
+                    "status", 200);
+            List<String> logHeaders = Configuration.getLogHeaders();
+            Enumeration<String> requestHeaders = request.getHeaderNames();
+            Map<String, String> headersMap = null;
+            while (requestHeaders.hasMoreElements()) {
+                String header = requestHeaders.nextElement();
+                if (logHeaders.contains(header)) {
+                    if (headersMap == null) {
+                        headersMap = new HashMap<>();
+                        log.put("headers", headersMap);
+                    }
+                    headersMap.put(header, JsonHelper.sanitize(request.getHeader(header)));
+                }
+            }
+            length += JsonHelper.toJsonString(log).length();
+        }
+        check(length);
+        return System.nanoTime() - start;
+    }
+
+    private static long withEntry(MockHttpServletRequest request, int records) {
+        long start = System.nanoTime();
+        long length = 0;
+        AccessLog.Entry entry = new AccessLog.Entry();
+        StringBuilder buffer = new StringBuilder(512);
+        for (int i = 0; i < records; i++) {
+            entry.fill(request, 200, null, null, null, 3);
+            buffer.setLength(0);
+            entry.format(buffer);
+            length += buffer.toString().length();
+            entry.clear();
+        }
+        check(length);
+        return System.nanoTime() - start;
+    }
+
+    private static void check(long length) {
+        if (length == 0) {
+            throw new IllegalStateException();
+        }
+    }
+
+    private static void report(String mode, long nanos) {
+        System.out.println(String.format("%-6s %,10d records in %,6d ms, %,8.1f ns/record", mode, RECORDS,
+                nanos / 1000000, nanos / (double) RECORDS));
+    }
+}
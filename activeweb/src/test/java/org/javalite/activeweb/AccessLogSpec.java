@@ -0,0 +1,70 @@
+package org.javalite.activeweb;
+
+import org.javalite.common.JsonHelper;
+import org.javalite.test.SystemStreamUtil;
+import org.javalite.test.jspec.JSpecSupport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Map;
+
+/**
+ * @author Igor Polevoy
+ */
+public class AccessLogSpec implements JSpecSupport {
+
+    private MockHttpServletRequest request;
+
+    @Before
+    public void before() {
+        SystemStreamUtil.replaceOut();
+        request = new MockHttpServletRequest("GET", "/hello/index");
+        request.setServerPort(8080);
+        request.addHeader("X-Request-Id", "a\"b");
+        request.addHeader("Cookie", "secret");
+        Configuration.logHeaders("X-Request-Id", "X-Request-Id");
+    }
+
+    @After
+    public void after() {
+        Configuration.logHeaders();
+        SystemStreamUtil.restoreSystemOut();
+    }
+
+    @Test
+    public void shouldFormatFixedSchemaRecord() {
+        AccessLog.Entry entry = new AccessLog.Entry();
+        entry.fill(request, 302, null, new RedirectResponse("/login"), null, 12);
+        StringBuilder buffer = new StringBuilder();
+        entry.format(buffer);
+
+        Map record = JsonHelper.toMap(buffer.toString());
+        the(record.get("controller")).shouldBeEqual("");
+        the(record.get("duration_millis")).shouldBeEqual(12);
+        the(record.get("url")).shouldBeEqual(request.getRequestURL().toString());
+        the(record.get("status")).shouldBeEqual(302);
+        the(record.get("redirect_target")).shouldBeEqual("/login");
+        Map headers = (Map) record.get("headers");
+        the(headers.size()).shouldBeEqual(1);
+        the(headers.get("X-Request-Id")).shouldBeEqual("a\"b");
+    }
+
+    @Test
+    public void shouldWriteRecordsOnBackgroundThread() {
+        AccessLog accessLog = new AccessLog(16, 1);
+        accessLog.log(request, 200, null, null, null, 1);
+        accessLog.close();
+        a(SystemStreamUtil.getSystemOut()).shouldContain("\"url\":\"http://localhost:8080/hello/index\"");
+    }
+
+    @Test
+    public void shouldSampleSuccessfulRequestsOnly() {
+        AccessLog accessLog = new AccessLog(0, 0);
+        accessLog.log(request, 200, null, null, null, 1);
+        a(SystemStreamUtil.getSystemOut()).shouldNotContain("hello/index");
+        accessLog.log(request, 404, null, null, new ActionNotFoundException("no such action"), 1);
+        a(SystemStreamUtil.getSystemOut()).shouldContain("no such action");
+    }
+}
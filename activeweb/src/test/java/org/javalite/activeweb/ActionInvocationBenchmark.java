@@ -0,0 +1,51 @@
+package org.javalite.activeweb;
+
+import app.controllers.SimpleController;
+
+import java.lang.reflect.Method;
+
+/**
+ * Compares invocation of an action with reflection, which is what {@link ControllerRunner} used to do, to a method
+ * handle cached in {@link ControllerMetadata}. This is not a spec, it is executed manually:
+ *
+ * <pre>
+ *     mvn test-compile exec:java -Dexec.mainClass="org.javalite.activeweb.ActionInvocationBenchmark" -Dexec.classpathScope=test
+ * </pre>
+ */
+public class ActionInvocationBenchmark {
+
+    private static final int WARMUP_CALLS = 2000000;
+    private static final int CALLS = 20000000;
+
+    public static void main(String[] args) throws Throwable {
+        AppController controller = new SimpleController();
+
+        reflection(controller, WARMUP_CALLS);
+        methodHandle(controller, WARMUP_CALLS);
+
+        report("reflection", reflection(controller, CALLS));
+        report("handle", methodHandle(controller, CALLS));
+    }
+
+    private static long reflection(AppController controller, int calls) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            Method m = controller.getClass().getMethod("index");
+            m.invoke(controller);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long methodHandle(AppController controller, int calls) throws Throwable {
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            ControllerMetadata.of(controller.getClass()).invokeAction(controller, "index");
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void report(String mode, long nanos) {
+        System.out.println(String.format("%-10s %,12d calls in %,6d ms, %,8.1f ns/call", mode, CALLS,
+                nanos / 1000000, nanos / (double) CALLS));
+    }
+}
@@ -0,0 +1,64 @@
+package org.javalite.activeweb;
+
+import app.controllers.AsyncController;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author Igor Polevoy
+ */
+public class AsyncActionSpec extends RequestSpec {
+
+    private void get(String path, boolean asyncSupported) throws IOException, ServletException {
+        request = new MockHttpServletRequest("GET", path);
+        request.setServletPath(path);
+        request.setAsyncSupported(asyncSupported);
+        dispatcher.doFilter(request, response, filterChain);
+    }
+
+    @Test
+    public void shouldCompleteRequestWhenActionCompletes() throws IOException, ServletException {
+        AsyncController.pending = new CompletableFuture<>();
+        get("/async", true);
+        a(request.isAsyncStarted()).shouldBeTrue();
+        a(response.getContentAsString()).shouldBeEqual("");
+
+        AsyncController.pending.complete("Jim");
+        a(response.getContentAsString()).shouldBeEqual("hello Jim");
+    }
+
+    @Test
+    public void shouldKeepStateOfRequestOnThreadWhichCompletesAction() throws IOException, ServletException {
+        AsyncController.pending = new CompletableFuture<>();
+        get("/async", true);
+
+        //this thread now serves another request
+        MockHttpServletRequest other = new MockHttpServletRequest("GET", "/other");
+        RequestContext.setTLs(other, new MockHttpServletResponse(), config, new AppContext(), new RequestVo(), null);
+        AsyncController.pending.complete("Jim");
+
+        a(response.getContentAsString()).shouldBeEqual("hello Jim");
+        a(RequestContext.getHttpRequest()).shouldBeTheSameAs(other);
+    }
+
+    @Test
+    public void shouldRenderErrorIfActionFails() throws IOException, ServletException {
+        AsyncController.pending = new CompletableFuture<>();
+        get("/async", true);
+        AsyncController.pending.completeExceptionally(new IllegalStateException("back end is down"));
+        a(response.getStatus()).shouldBeEqual(500);
+        a(response.getContentAsString()).shouldContain("back end is down");
+    }
+
+    @Test
+    public void shouldWaitForActionIfAsyncIsNotSupported() throws IOException, ServletException {
+        get("/async/background", false);
+        a(request.isAsyncStarted()).shouldBeFalse();
+        a(response.getContentAsString()).shouldBeEqual("done");
+    }
+}
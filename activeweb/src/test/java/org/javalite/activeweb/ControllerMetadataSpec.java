@@ -0,0 +1,71 @@
+package org.javalite.activeweb;
+
+import app.controllers.FailingController;
+import app.controllers.RestfulController;
+import app.controllers.SimpleController;
+import app.controllers.admin.PermissionsController;
+import org.javalite.test.jspec.JSpecSupport;
+import org.junit.Test;
+
+import static org.javalite.common.Collections.list;
+
+/**
+ * @author Igor Polevoy
+ */
+public class ControllerMetadataSpec implements JSpecSupport {
+
+    @Test
+    public void shouldComputeMetadataOncePerClass() {
+        a(ControllerMetadata.of(SimpleController.class)).shouldBeTheSameAs(ControllerMetadata.of(SimpleController.class));
+    }
+
+    @Test
+    public void shouldCollectHttpMethodsOfActions() {
+        ControllerMetadata metadata = ControllerMetadata.of(SimpleController.class);
+        a(metadata.getHttpMethods("index")).shouldBeEqual(list(HttpMethod.GET));
+        a(metadata.getHttpMethods("list")).shouldBeEqual(list(HttpMethod.GET, HttpMethod.POST));
+        a(metadata.getAllowHeader("list")).shouldBeEqual("GET, POST");
+        a(metadata.getAllowHeader("destroy")).shouldBeEqual("DELETE");
+    }
+
+    @Test(expected = ActionNotFoundException.class)
+    public void shouldThrowExceptionForNonExistentAction() {
+        ControllerMetadata.of(SimpleController.class).getAllowHeader("blah");
+    }
+
+    @Test
+    public void shouldConvertActionNamesToMethodNames() {
+        ControllerMetadata metadata = ControllerMetadata.of(RestfulController.class);
+        a(metadata.getActionMethodName("new_form")).shouldBeEqual("newForm");
+        a(metadata.getActionMethodName("edit-form")).shouldBeEqual("editForm");
+        a(metadata.getActionMethodName("index")).shouldBeEqual("index");
+        a(metadata.getActionMethodName("no_such_action")).shouldBeEqual("noSuchAction");
+        a(metadata.getActionMethod("newForm").getName()).shouldBeEqual("newForm");
+        a(metadata.getActionMethod("noSuchAction")).shouldBeNull();
+    }
+
+    @Test
+    public void shouldKeepRestfulFlagAndPath() {
+        a(ControllerMetadata.of(RestfulController.class).isRestful()).shouldBeTrue();
+        a(ControllerMetadata.of(SimpleController.class).isRestful()).shouldBeFalse();
+        a(ControllerMetadata.of(PermissionsController.class).getControllerPath()).shouldBeEqual("/admin/permissions");
+    }
+
+    @Test
+    public void shouldInvokeActionWithoutWrappingExceptions() throws Throwable {
+        ControllerMetadata.of(SimpleController.class).invokeAction(new SimpleController(), "index");
+
+        Throwable thrown = null;
+        try {
+            ControllerMetadata.of(FailingController.class).invokeAction(new FailingController(), "index");
+        } catch (Throwable e) {
+            thrown = e;
+        }
+        a(thrown).shouldBeA(ArithmeticException.class);
+    }
+
+    @Test(expected = ActionNotFoundException.class)
+    public void shouldNotInvokeMethodsNotDeclaredInControllers() throws Throwable {
+        ControllerMetadata.of(SimpleController.class).invokeAction(new SimpleController(), "wait");
+    }
+}
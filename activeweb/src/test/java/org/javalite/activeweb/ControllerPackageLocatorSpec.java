@@ -42,6 +42,17 @@ public class ControllerPackageLocatorSpec {
     }
 
 
+    @Test
+    public void shouldDiscoverControllerClassesInDirectories(){
+        List<String> controllerPackages = new ArrayList<>();
+        List<String> controllerClasses = new ArrayList<>();
+        ControllerPackageLocator.locateControllers(new MockFilterConfig(), controllerPackages, controllerClasses);
+        a(controllerPackages.contains("admin")).shouldBeTrue();
+        a(controllerClasses.contains("app.controllers.HelloController")).shouldBeTrue();
+        a(controllerClasses.contains("app.controllers.admin.PermissionsController")).shouldBeTrue();
+        a(controllerClasses.contains("app.controllers.BlahAnnotation")).shouldBeFalse();
+    }
+
     @Test
     public void shouldDiscoverPackagesInJars(){
 
@@ -0,0 +1,57 @@
+package org.javalite.activeweb;
+
+import org.javalite.test.jspec.JSpecSupport;
+import org.junit.Test;
+
+import static org.javalite.common.Collections.list;
+
+/**
+ * @author Igor Polevoy
+ */
+public class ControllerPackageTrieSpec implements JSpecSupport {
+
+    private ControllerPackageTrie trie = new ControllerPackageTrie(list("admin", "admin.special", "admin.special.deep", "v1_0"));
+
+    @Test
+    public void shouldFindDeepestPackage() {
+        ControllerPackageTrie.ControllerPath path = trie.find("/admin/special/deep/db/show/1");
+        a(path.getPackageSuffix()).shouldBeEqual("admin.special.deep");
+        a(path.getControllerName()).shouldBeEqual("db");
+
+        path = trie.find("/admin/special/db");
+        a(path.getPackageSuffix()).shouldBeEqual("admin.special");
+        a(path.getControllerName()).shouldBeEqual("db");
+    }
+
+    @Test
+    public void shouldMatchPeriodInUriToUnderscoreInPackage() {
+        ControllerPackageTrie.ControllerPath path = trie.find("/v1.0/service");
+        a(path.getPackageSuffix()).shouldBeEqual("v1_0");
+        a(path.getControllerName()).shouldBeEqual("service");
+    }
+
+    @Test
+    public void shouldMatchWholeSegmentsOnly() {
+        ControllerPackageTrie.ControllerPath path = trie.find("/administrator/show");
+        a(path.getPackageSuffix()).shouldBeNull();
+        a(path.getControllerName()).shouldBeEqual("administrator");
+
+        path = trie.find("/admin/specialist/show");
+        a(path.getPackageSuffix()).shouldBeEqual("admin");
+        a(path.getControllerName()).shouldBeEqual("specialist");
+    }
+
+    @Test
+    public void shouldReturnEmptyControllerNameIfUriEndsWithPackage() {
+        a(trie.find("/admin").getControllerName()).shouldBeEqual("");
+        a(trie.find("/admin/special/").getControllerName()).shouldBeEqual("");
+    }
+
+    @Test
+    public void shouldReturnFirstSegmentIfNotInPackage() {
+        ControllerPackageTrie.ControllerPath path = trie.find("/hello/show/1");
+        a(path.getPackageSuffix()).shouldBeNull();
+        a(path.getControllerName()).shouldBeEqual("hello");
+        a(trie.find("/hello/").getControllerName()).shouldBeEqual("hello");
+    }
+}
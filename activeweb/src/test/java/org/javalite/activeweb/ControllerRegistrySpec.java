@@ -0,0 +1,63 @@
+package org.javalite.activeweb;
+
+import app.controllers.DaHeadController;
+import app.controllers.HelloController;
+import app.controllers.admin.PermissionsController;
+import org.javalite.test.jspec.ExceptionExpectation;
+import org.javalite.test.jspec.JSpecSupport;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.javalite.common.Collections.list;
+
+/**
+ * @author Igor Polevoy
+ */
+public class ControllerRegistrySpec implements JSpecSupport {
+
+    @Test
+    public void shouldFindControllersDiscoveredAtStartup() throws ClassLoadException {
+        ControllerRegistry registry = new ControllerRegistry(list("app.controllers.HelloController",
+                "app.controllers.admin.PermissionsController", "app.controllers.BlahAnnotation"));
+
+        a(registry.getControllerClass("hello", null)).shouldBeEqual(HelloController.class);
+        a(registry.getControllerClass("permissions", "admin")).shouldBeEqual(PermissionsController.class);
+        a(registry.createController("hello", null)).shouldBeA(HelloController.class);
+        a(registry.createController("hello", null)).shouldNotBeTheSameAs(registry.createController("hello", null));
+    }
+
+    @Test
+    public void shouldLoadControllersNotDiscoveredAtStartup() throws ClassLoadException {
+        ControllerRegistry registry = new ControllerRegistry(Collections.<String>emptyList());
+        a(registry.getControllerClass("da_head", null)).shouldBeEqual(DaHeadController.class);
+        a(registry.getControllerClass("da-head", null)).shouldBeEqual(DaHeadController.class);
+        a(registry.createController("permissions", "admin")).shouldBeA(PermissionsController.class);
+    }
+
+    @Test
+    public void shouldRememberUnknownControllers() {
+        ControllerRegistry registry = new ControllerRegistry(Collections.<String>emptyList());
+        //second lookup is answered from memory, with the same message
+        for (int i = 0; i < 2; i++) {
+            String message = null;
+            try {
+                registry.createController("unknown", "admin");
+            } catch (ClassLoadException e) {
+                message = e.getMessage();
+            }
+            a(message).shouldBeEqual("java.lang.ClassNotFoundException: app.controllers.admin.UnknownController");
+        }
+    }
+
+    @Test
+    public void shouldRejectClassesWhichAreNotControllers() {
+        final ControllerRegistry registry = new ControllerRegistry(Collections.<String>emptyList());
+        expect(new ExceptionExpectation<ClassLoadException>(ClassLoadException.class) {
+            @Override
+            public void exec() throws Exception {
+                registry.createController("blah", null);
+            }
+        });
+    }
+}
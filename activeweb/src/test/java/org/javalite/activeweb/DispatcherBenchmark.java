@@ -0,0 +1,75 @@
+package org.javalite.activeweb;
+
+import app.controllers.Issue193Controller;
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockFilterConfig;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Measures throughput of {@link RequestDispatcher} with a route config of a few hundred custom routes.
+ * This is not a spec, it is executed manually:
+ *
+ * <pre>
+ *     mvn test-compile exec:java -Dexec.mainClass="org.javalite.activeweb.DispatcherBenchmark" -Dexec.classpathScope=test
+ * </pre>
+ *
+ * Mode "rebuild" resets the route config before every request, which is what the dispatcher used to do.
+ * Mode "cached" uses routes built once at startup.
+ */
+public class DispatcherBenchmark {
+
+    private static final int ROUTE_COUNT = 300;
+    private static final int WARMUP_REQUESTS = 20000;
+    private static final int REQUESTS = 100000;
+
+    public static void main(String[] args) throws Exception {
+        LogManager.getRootLogger().setLevel(Level.WARN);
+        Configuration.getTemplateManager().setTemplateLocation("src/test/views");
+
+        RequestDispatcher dispatcher = new RequestDispatcher();
+        dispatcher.init(new MockFilterConfig());
+
+        run(dispatcher, true, WARMUP_REQUESTS);
+        run(dispatcher, false, WARMUP_REQUESTS);
+
+        report("rebuild", run(dispatcher, true, REQUESTS));
+        report("cached", run(dispatcher, false, REQUESTS));
+    }
+
+    private static long run(RequestDispatcher dispatcher, boolean rebuild, int requests) throws Exception {
+        AbstractRouteConfig routeConfig = routeConfig();
+        dispatcher.setRouteConfig(routeConfig);
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            if (rebuild) {
+                dispatcher.setRouteConfig(routeConfig);
+            }
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+            request.setServletPath("/section" + (ROUTE_COUNT - 1) + "/items/" + i);
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            dispatcher.doFilter(request, response, new MockFilterChain());
+            if (!"ok".equals(response.getContentAsString())) {
+                throw new IllegalStateException("unexpected response: " + response.getContentAsString());
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static AbstractRouteConfig routeConfig() {
+        return new AbstractRouteConfig() {
+            public void init(AppContext appContext) {
+                for (int i = 0; i < ROUTE_COUNT; i++) {
+                    route("/section" + i + "/items/{id}").to(Issue193Controller.class).action("index");
+                }
+            }
+        };
+    }
+
+    private static void report(String mode, long nanos) {
+        System.out.println(String.format("%-8s %,10d requests in %,6d ms, %,10.0f requests/sec", mode, REQUESTS,
+                nanos / 1000000, REQUESTS / (nanos / 1e9)));
+    }
+}
@@ -0,0 +1,119 @@
+package org.javalite.activeweb;
+
+import org.javalite.test.jspec.ExceptionExpectation;
+import org.javalite.test.jspec.JSpecSupport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * @author Igor Polevoy
+ */
+public class DynamicCompilerSpec implements JSpecSupport {
+
+    private Path sourceDir, targetDir;
+    private DynamicCompiler compiler;
+
+    @Before
+    public void before() throws IOException {
+        sourceDir = Files.createTempDirectory("src");
+        targetDir = Files.createTempDirectory("classes");
+        Files.createDirectories(sourceDir.resolve("reload"));
+        writeController("Greeting", "hello");
+        writeController("Other", "other");
+        compiler = new DynamicCompiler(ToolProvider.getSystemJavaCompiler(), sourceDir.toFile(),
+                targetDir.toString(), getClass().getClassLoader());
+        compiler.changed(source("Greeting"));
+        compiler.changed(source("Other"));
+    }
+
+    @After
+    public void after() throws IOException {
+        compiler.close();
+        delete(sourceDir.toFile());
+        delete(targetDir.toFile());
+    }
+
+    @Test
+    public void shouldReuseCompiledClassesUntilSourceChanges() throws Exception {
+        Class<?> greeting = compiler.loadClass("reload.GreetingController");
+        a(greeting.getField("MESSAGE").get(null)).shouldBeEqual("hello");
+        a(compiler.loadClass("reload.GreetingController")).shouldBeTheSameAs(greeting);
+
+        writeController("Greeting", "hi");
+        compiler.changed(source("Greeting"));
+        Class<?> changed = compiler.loadClass("reload.GreetingController");
+        a(changed).shouldNotBeTheSameAs(greeting);
+        a(changed.getField("MESSAGE").get(null)).shouldBeEqual("hi");
+    }
+
+    @Test
+    public void shouldFailBrokenClassOnly() throws Exception {
+        Files.write(source("Greeting"), "package reload; public class GreetingController { oops }".getBytes());
+        writeController("Other", "changed");
+        compiler.changed(source("Greeting"));
+        compiler.changed(source("Other"));
+
+        expect(new ExceptionExpectation<CompilationException>(CompilationException.class) {
+            @Override
+            public void exec() throws Exception {
+                compiler.loadClass("reload.GreetingController");
+            }
+        });
+        a(compiler.loadClass("reload.OtherController").getField("MESSAGE").get(null)).shouldBeEqual("changed");
+    }
+
+    @Test
+    public void shouldFailClassWhichDependsOnBrokenClass() throws Exception {
+        Files.write(source("Greeting"), "package reload; public class GreetingController { oops }".getBytes());
+        Files.write(source("Other"), ("package reload; public class OtherController {"
+                + " public static final String MESSAGE = GreetingController.MESSAGE; }").getBytes());
+        compiler.changed(source("Greeting"));
+        compiler.changed(source("Other"));
+
+        expect(new ExceptionExpectation<CompilationException>(CompilationException.class) {
+            @Override
+            public void exec() throws Exception {
+                compiler.loadClass("reload.OtherController");
+            }
+        });
+    }
+
+    @Test
+    public void shouldWatchSourceFiles() throws Exception {
+        Class<?> greeting = compiler.loadClass("reload.GreetingController");
+        writeController("Greeting", "watched");
+        long deadline = System.currentTimeMillis() + 10000;
+        Class<?> changed = greeting;
+        while (changed == greeting && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            changed = compiler.loadClass("reload.GreetingController");
+        }
+        a(changed.getField("MESSAGE").get(null)).shouldBeEqual("watched");
+    }
+
+    private Path source(String name) {
+        return sourceDir.resolve("reload").resolve(name + "Controller.java");
+    }
+
+    private void writeController(String name, String message) throws IOException {
+        Files.write(source(name), ("package reload; public class " + name + "Controller { public static final String MESSAGE = \""
+                + message + "\"; }").getBytes());
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                delete(f);
+            }
+        }
+        file.delete();
+    }
+}
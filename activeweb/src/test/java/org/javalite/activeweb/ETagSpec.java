@@ -0,0 +1,96 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package org.javalite.activeweb;
+
+import app.controllers.TaggedController;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+
+/**
+ * @author Igor Polevoy
+ */
+public class ETagSpec extends RequestSpec {
+
+    @Before
+    public void before() {
+        TaggedController.rendered = 0;
+    }
+
+    @Test
+    public void shouldSendNotModifiedWhenPageHasNotChanged() throws IOException, ServletException {
+        String page = get("/tagged", "Jim", null, null);
+        a(page).shouldContain("name is: Jim");
+        String etag = response.getHeader("ETag");
+        a(etag).shouldNotBeNull();
+
+        a(get("/tagged", "Jim", "W/\"other\", " + etag, null)).shouldBeEqual("");
+        a(response.getStatus()).shouldBeEqual(304);
+        a(response.getHeader("ETag")).shouldBeEqual(etag);
+
+        a(get("/tagged", "Bob", etag, null)).shouldContain("name is: Bob");
+        a(response.getStatus()).shouldBeEqual(200);
+        a(response.getHeader("ETag")).shouldNotBeEqual(etag);
+    }
+
+    @Test
+    public void shouldSkipRenderingWhenVersionHasNotChanged() throws IOException, ServletException {
+        a(get("/tagged/version", null, null, null)).shouldContain("name is: versioned");
+        String etag = response.getHeader("ETag");
+        a(get("/tagged/version", null, etag, null)).shouldBeEqual("");
+        a(response.getStatus()).shouldBeEqual(304);
+        a(TaggedController.rendered).shouldBeEqual(1);
+    }
+
+    @Test
+    public void shouldSkipRenderingWhenNotModifiedSinceDate() throws IOException, ServletException {
+        a(get("/tagged/since", null, null, null)).shouldContain("name is: dated");
+        a(response.getHeaderValue("Last-Modified")).shouldBeEqual(1000000000000L);
+        a(get("/tagged/since", null, null, 1000000000000L)).shouldBeEqual("");
+        a(response.getStatus()).shouldBeEqual(304);
+        a(get("/tagged/since", null, null, 999999999000L)).shouldContain("name is: dated");
+        a(TaggedController.rendered).shouldBeEqual(2);
+    }
+
+    @Test
+    public void shouldIgnoreMalformedIfModifiedSince() throws IOException, ServletException {
+        a(get("/tagged/since", null, null, "yesterday")).shouldContain("name is: dated");
+        a(response.getStatus()).shouldBeEqual(200);
+    }
+
+    private String get(String path, String name, String ifNoneMatch, Object ifModifiedSince) throws IOException, ServletException {
+        request = new MockHttpServletRequest("GET", "/test_context" + path);
+        request.setContextPath("/test_context");
+        request.setServletPath(path);
+        if (name != null) {
+            request.addParameter("name", name);
+        }
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        if (ifModifiedSince != null) {
+            request.addHeader("If-Modified-Since", ifModifiedSince);
+        }
+        response = new MockHttpServletResponse();
+        dispatcher.doFilter(request, response, filterChain);
+        return response.getContentAsString();
+    }
+}
@@ -0,0 +1,79 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package org.javalite.activeweb;
+
+import app.controllers.EarlyFlushController;
+import org.javalite.activeweb.freemarker.FreeMarkerTemplateManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashMap;
+
+/**
+ * @author Igor Polevoy
+ */
+public class EarlyFlushSpec extends RequestSpec {
+
+    @Before
+    public void before() {
+        EarlyFlushController.response = response;
+        EarlyFlushController.sentBeforeAction = null;
+    }
+
+    @Test
+    public void shouldSendLayoutHeadBeforeAction() throws IOException, ServletException {
+        request.setServletPath("/early_flush");
+        request.setMethod("GET");
+        dispatcher.doFilter(request, response, filterChain);
+
+        the(EarlyFlushController.sentBeforeAction).shouldContain("<title>flushed</title>");
+        the(EarlyFlushController.sentBeforeAction).shouldNotContain("<body>");
+
+        String html = response.getContentAsString();
+        the(html.indexOf("<title>")).shouldBeEqual(html.lastIndexOf("<title>"));
+        the(html).shouldContain("<div id=\"content\">name is: Jim</div>");
+        the(html).shouldContain("</html>");
+        the(response.getStatus()).shouldBeEqual(200);
+    }
+
+    @Test
+    public void shouldRenderErrorInRestOfLayoutIfActionFails() throws IOException, ServletException {
+        request.setServletPath("/early_flush/fail");
+        request.setMethod("GET");
+        dispatcher.doFilter(request, response, filterChain);
+
+        the(EarlyFlushController.sentBeforeAction).shouldContain("<title>flushed</title>");
+        String html = response.getContentAsString();
+        the(html.indexOf("<title>")).shouldBeEqual(html.lastIndexOf("<title>"));
+        the(html).shouldContain("<div id=\"content\">action failed</div>");
+        the(response.isCommitted()).shouldBeTrue();
+    }
+
+    @Test
+    public void shouldNotSendHeadOfLayoutWithoutFlushTag() {
+        FreeMarkerTemplateManager manager = new FreeMarkerTemplateManager();
+        manager.setTemplateLocation("src/test/views");
+        StringWriter writer = new StringWriter();
+        the(manager.mergeLayoutHead(new HashMap<String, Object>(), "/layouts/default_layout", writer)).shouldBeFalse();
+        the(writer.toString()).shouldBeEqual("");
+        the(manager.mergeLayoutHead(new HashMap<String, Object>(), "/layouts/flush_layout", writer)).shouldBeTrue();
+        the(writer.toString()).shouldContain("<title>flushed</title>");
+    }
+}
@@ -0,0 +1,123 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package org.javalite.activeweb;
+
+import org.javalite.test.XPathHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * @author Igor Polevoy
+ */
+public class ErrorPageSpec extends RequestSpec {
+
+    @Before
+    public void before() {
+        Configuration.setUseDefaultLayoutForErrors(true);
+        Configuration.setProductionErrors(true);
+    }
+
+    @After
+    public void after() {
+        Configuration.setProductionErrors(false);
+        Configuration.setMaxErrorPagesPerSecond(20);
+    }
+
+    @Test
+    public void shouldSendSameNotFoundPageForAllMissingResources() throws IOException, ServletException {
+        String first = get("/does_not_exist");
+        a(response.getStatus()).shouldBeEqual(404);
+        a(XPathHelper.count("//div", first)).shouldBeEqual(3);
+        a(XPathHelper.selectText("//div[@id='content']", first)).shouldBeEqual("Not Found");
+
+        response = new MockHttpServletResponse();
+        a(get("/hello/hello")).shouldBeEqual(first);
+        a(response.getStatus()).shouldBeEqual(404);
+    }
+
+    @Test
+    public void shouldNotSendStackTraceToAjaxRequests() throws IOException, ServletException {
+        request.addHeader("X-Requested-With", "XMLHttpRequest");
+        a(get("/does_not_exist")).shouldBeEqual("Not Found");
+        a(response.getStatus()).shouldBeEqual(404);
+    }
+
+    @Test
+    public void shouldSendStaticPageWhenErrorPagesAreOverLimit() throws IOException, ServletException {
+        Configuration.setMaxErrorPagesPerSecond(0);
+        a(get("/failing")).shouldBeEqual(ErrorPages.INTERNAL_ERROR);
+        a(response.getStatus()).shouldBeEqual(500);
+    }
+
+    @Test
+    public void shouldRenderErrorPagesUnderLimit() throws IOException, ServletException {
+        a(get("/failing")).shouldContain("/ by zero");
+        a(response.getStatus()).shouldBeEqual(500);
+    }
+
+    @Test
+    public void shouldLimitErrorPagesPerSecond() {
+        Configuration.setMaxErrorPagesPerSecond(2);
+        ErrorPages pages = new ErrorPages();
+        a(pages.tryRender()).shouldBeTrue();
+        a(pages.tryRender()).shouldBeTrue();
+        a(pages.tryRender()).shouldBeFalse();
+    }
+
+    @Test
+    public void shouldNotFillStackTracesOfRepeatedLookupFailures() {
+        ControllerRegistry registry = new ControllerRegistry(Collections.<String>emptyList());
+        ClassLoadException remembered = null;
+        for (int i = 0; i < 2; i++) {
+            try {
+                registry.createController("unknown", null);
+            } catch (ClassLoadException e) {
+                remembered = e;
+            }
+        }
+        the(remembered.getMessage()).shouldBeEqual("java.lang.ClassNotFoundException: app.controllers.UnknownController");
+        the(remembered.getStackTrace().length).shouldBeEqual(0);
+    }
+
+    @Test
+    public void shouldFillStackTracesOfLookupFailuresOutsideOfProduction() {
+        Configuration.setProductionErrors(false);
+        ControllerRegistry registry = new ControllerRegistry(Collections.<String>emptyList());
+        ClassLoadException remembered = null;
+        for (int i = 0; i < 2; i++) {
+            try {
+                registry.createController("unknown", null);
+            } catch (ClassLoadException e) {
+                remembered = e;
+            }
+        }
+        the(remembered.getStackTrace().length > 0).shouldBeTrue();
+    }
+
+    private String get(String path) throws IOException, ServletException {
+        request.setServletPath(path);
+        request.setMethod("GET");
+        dispatcher.doFilter(request, response, filterChain);
+        return response.getContentAsString();
+    }
+}
@@ -0,0 +1,77 @@
+package org.javalite.activeweb;
+
+import app.controllers.HelloController;
+import app.controllers.SimpleController;
+import org.javalite.activeweb.controller_filters.HttpSupportFilter;
+import org.javalite.test.jspec.JSpecSupport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Igor Polevoy
+ */
+public class FilterChainsSpec implements JSpecSupport {
+
+    private HttpSupportFilter global = new HttpSupportFilter(), hello = new HttpSupportFilter(),
+            helloIndex = new HttpSupportFilter();
+
+    @Before
+    public void before() {
+        Configuration.resetFilters();
+        Configuration.addFilter(global);
+        Configuration.getFilterMetadata(hello).addController(HelloController.class);
+        Configuration.addFilter(hello);
+        Configuration.getFilterMetadata(helloIndex).addController(HelloController.class);
+        Configuration.getFilterMetadata(helloIndex).setIncludedActions(new String[]{"index"});
+        Configuration.addFilter(helloIndex);
+    }
+
+    @After
+    public void after() {
+        Configuration.resetFilters();
+    }
+
+    private HttpSupportFilter[] chain(AppController controller, String action) {
+        return Configuration.getFilterChain(new Route(controller, action, HttpMethod.GET));
+    }
+
+    @Test
+    public void shouldResolveFiltersThatApplyToAction() {
+        HttpSupportFilter[] chain = chain(new HelloController(), "index");
+        a(chain.length).shouldBeEqual(3);
+        a(chain[0]).shouldBeTheSameAs(global);
+        a(chain[1]).shouldBeTheSameAs(hello);
+        a(chain[2]).shouldBeTheSameAs(helloIndex);
+
+        chain = chain(new HelloController(), "no_view");
+        a(chain.length).shouldBeEqual(2);
+        a(chain[1]).shouldBeTheSameAs(hello);
+
+        chain = chain(new SimpleController(), "index");
+        a(chain.length).shouldBeEqual(1);
+        a(chain[0]).shouldBeTheSameAs(global);
+    }
+
+    @Test
+    public void shouldReuseChainOfAction() {
+        a(chain(new HelloController(), "index")).shouldBeTheSameAs(chain(new HelloController(), "index"));
+    }
+
+    @Test
+    public void shouldNotKeepChainsOfActionsThatDoNotExist() {
+        a(chain(new HelloController(), "blah")).shouldNotBeTheSameAs(chain(new HelloController(), "blah"));
+    }
+
+    @Test
+    public void shouldResolveChainsAgainWhenFiltersChange() {
+        a(chain(new SimpleController(), "index").length).shouldBeEqual(1);
+
+        HttpSupportFilter simple = new HttpSupportFilter();
+        Configuration.getFilterMetadata(simple).addController(SimpleController.class);
+        Configuration.addFilter(simple);
+        HttpSupportFilter[] chain = chain(new SimpleController(), "index");
+        a(chain.length).shouldBeEqual(2);
+        a(chain[1]).shouldBeTheSameAs(simple);
+    }
+}
@@ -0,0 +1,42 @@
+package org.javalite.activeweb;
+
+import org.javalite.test.jspec.JSpecSupport;
+import org.junit.Test;
+
+/**
+ * @author Igor Polevoy
+ */
+public class LatencyHistogramSpec implements JSpecSupport {
+
+    @Test
+    public void shouldReportPercentilesWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+        a(histogram.getCount()).shouldBeEqual(1000L);
+        a(histogram.getMax()).shouldBeEqual(1000000L);
+        a(histogram.getMean()).shouldBeEqual(500500L);
+        a(within(histogram.getValueAtPercentile(50), 500000)).shouldBeTrue();
+        a(within(histogram.getValueAtPercentile(99), 990000)).shouldBeTrue();
+        a(histogram.getValueAtPercentile(100)).shouldBeEqual(1000000L);
+
+        histogram.reset();
+        a(histogram.getCount()).shouldBeEqual(0L);
+        a(histogram.getValueAtPercentile(99)).shouldBeEqual(0L);
+    }
+
+    @Test
+    public void shouldPlaceValuesIntoBucketsThatContainThem() {
+        long[] values = {0, 1, 15, 16, 17, 31, 32, 33, 1000, 123456789, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucket(value);
+            a(value <= LatencyHistogram.highestValue(bucket)).shouldBeTrue();
+            a(bucket == 0 || value > LatencyHistogram.highestValue(bucket - 1)).shouldBeTrue();
+        }
+    }
+
+    private static boolean within(long value, long expected) {
+        return Math.abs(value - expected) <= expected * 0.07;
+    }
+}
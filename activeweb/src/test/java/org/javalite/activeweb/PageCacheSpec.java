@@ -0,0 +1,198 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package org.javalite.activeweb;
+
+import app.controllers.CachedPageController;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * @author Igor Polevoy
+ */
+public class PageCacheSpec extends RequestSpec {
+
+    @Before
+    public void before() {
+        CachedPageController.calls = 0;
+    }
+
+    @After
+    public void after() {
+        Configuration.getPageCache().purge("");
+        Configuration.setPageCacheSize(PageCache.DEFAULT_MAX_BYTES);
+    }
+
+    @Test
+    public void shouldSendRecordedPageWithoutRunningAction() throws IOException, ServletException {
+        a(get("/cached_page", "name=Jim", null)).shouldBeEqual("page 1 of Jim");
+        a(get("/cached_page", "name=Jim", null)).shouldBeEqual("page 1 of Jim");
+        a(response.getStatus()).shouldBeEqual(200);
+        a(response.getHeader("X-Calls")).shouldBeEqual("1");
+        a(response.getContentType()).shouldContain("text/html");
+        a(CachedPageController.calls).shouldBeEqual(1);
+
+        a(get("/cached_page", "name=Bob", null)).shouldBeEqual("page 2 of Bob");
+    }
+
+    @Test
+    public void shouldKeepPageForEachValueOfVaryHeaders() throws IOException, ServletException {
+        a(get("/cached_page/localized", null, "en")).shouldBeEqual("en 1");
+        a(get("/cached_page/localized", null, "fr")).shouldBeEqual("fr 2");
+        a(get("/cached_page/localized", null, "en")).shouldBeEqual("en 1");
+        a(CachedPageController.calls).shouldBeEqual(2);
+    }
+
+    @Test
+    public void shouldRenderExpiredPageAgainForOneRequest() throws IOException, ServletException {
+        a(get("/cached_page/expired", null, null)).shouldBeEqual("expired 1");
+        a(get("/cached_page/expired", null, null)).shouldBeEqual("expired 2");
+        a(CachedPageController.calls).shouldBeEqual(2);
+    }
+
+    @Test
+    public void shouldSendExpiredPageWhileItIsRenderedAgain() throws IOException, ServletException {
+        get("/cached_page/expired", null, null);
+        MockHttpServletRequest first = request("/cached_page/expired", null, null);
+        //first request takes refresh of expired page
+        a(Configuration.getPageCache().send(first, new MockHttpServletResponse(), "/cached_page/expired")).shouldBeFalse();
+        a(get("/cached_page/expired", null, null)).shouldBeEqual("expired 1");
+        a(CachedPageController.calls).shouldBeEqual(1);
+    }
+
+    @Test
+    public void shouldNotKeepPagesWhichStartSessionOrFail() throws IOException, ServletException {
+        get("/cached_page/with_session", null, null);
+        a(get("/cached_page/with_session", null, null)).shouldBeEqual("session 2");
+        get("/cached_page/missing", null, null);
+        a(get("/cached_page/missing", null, null)).shouldBeEqual("missing 4");
+        a(Configuration.getPageCache().getBytes()).shouldBeEqual(0);
+    }
+
+    @Test
+    public void shouldNotKeepPagesOfRequestsWhichCanBeSpecificToUser() throws IOException, ServletException {
+        request = request("/cached_page", "name=Jim", null);
+        request.addHeader("Cookie", "user=jim");
+        send();
+        request = request("/cached_page", "name=Jim", null);
+        request.addHeader("Authorization", "Basic amltOnNlY3JldA==");
+        send();
+        request = request("/cached_page", "name=Jim", null);
+        request.setSession(new MockHttpSession());
+        send();
+        a(Configuration.getPageCache().getBytes()).shouldBeEqual(0);
+        a(get("/cached_page", "name=Jim", null)).shouldBeEqual("page 4 of Jim");
+    }
+
+    @Test
+    public void shouldRenderPageAgainForRequestWithCookie() throws IOException, ServletException {
+        a(get("/cached_page", "name=Jim", null)).shouldBeEqual("page 1 of Jim");
+        request = request("/cached_page", "name=Jim", null);
+        request.addHeader("Cookie", "user=jim");
+        a(send()).shouldBeEqual("page 2 of Jim");
+        a(get("/cached_page", "name=Jim", null)).shouldBeEqual("page 1 of Jim");
+    }
+
+    @Test
+    public void shouldRemovePurgedPages() throws IOException, ServletException {
+        get("/cached_page", "name=Jim", null);
+        Configuration.getPageCache().purge("/other");
+        a(get("/cached_page", "name=Jim", null)).shouldBeEqual("page 1 of Jim");
+        Configuration.getPageCache().purge("/cached_page");
+        a(Configuration.getPageCache().getUriCount()).shouldBeEqual(0);
+        a(get("/cached_page", "name=Jim", null)).shouldBeEqual("page 2 of Jim");
+    }
+
+    @Test
+    public void shouldNotKeepPagesLargerThanCache() throws IOException, ServletException {
+        Configuration.setPageCacheSize(5);
+        get("/cached_page", "name=Jim", null);
+        a(get("/cached_page", "name=Jim", null)).shouldBeEqual("page 2 of Jim");
+    }
+
+    @Test
+    public void shouldForgetURIsOfRemovedPages() throws IOException, ServletException {
+        get("/cached_page", "name=Jim", null);
+        //room for one page
+        Configuration.setPageCacheSize(Configuration.getPageCache().getBytes() * 3 / 2);
+        get("/cached_page", "name=Bob", null);
+        get("/cached_page", "name=Tom", null);
+        a(Configuration.getPageCache().getUriCount()).shouldBeEqual(1);
+    }
+
+    @Test
+    public void shouldKeepPageOfAsynchronousAction() throws IOException, ServletException {
+        CachedPageController.pending = new CompletableFuture<>();
+        get("/cached_page/later", null, null);
+        CachedPageController.pending.complete("Jim");
+        a(response.getContentAsString()).shouldBeEqual("later Jim 1");
+        a(get("/cached_page/later", null, null)).shouldBeEqual("later Jim 1");
+        a(CachedPageController.calls).shouldBeEqual(1);
+    }
+
+    @Test
+    public void shouldKeepPageRenderedOnExecutor() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        dispatcher.setExecutor(executor);
+        try {
+            get("/cached_page", "name=Jim", null);
+            executor.submit(new Runnable() { public void run() {} }).get(); // waits for the request
+            a(response.getContentAsString()).shouldBeEqual("page 1 of Jim");
+            a(get("/cached_page", "name=Jim", null)).shouldBeEqual("page 1 of Jim");
+            a(CachedPageController.calls).shouldBeEqual(1);
+        } finally {
+            dispatcher.setExecutor(null);
+            executor.shutdown();
+        }
+    }
+
+    private String get(String path, String query, String language) throws IOException, ServletException {
+        request = request(path, query, language);
+        return send();
+    }
+
+    private String send() throws IOException, ServletException {
+        response = new MockHttpServletResponse();
+        dispatcher.doFilter(request, response, filterChain);
+        return response.getContentAsString();
+    }
+
+    private MockHttpServletRequest request(String path, String query, String language) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/test_context" + path);
+        request.setContextPath("/test_context");
+        request.setServletPath(path);
+        request.setAsyncSupported(true);
+        if (query != null) {
+            request.setQueryString(query);
+            String[] param = query.split("=");
+            request.addParameter(param[0], param[1]);
+        }
+        if (language != null) {
+            request.addHeader("Accept-Language", language);
+        }
+        return request;
+    }
+}
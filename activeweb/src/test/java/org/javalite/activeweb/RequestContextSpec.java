@@ -0,0 +1,44 @@
+package org.javalite.activeweb;
+
+import org.javalite.test.jspec.JSpecSupport;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @author Igor Polevoy
+ */
+public class RequestContextSpec implements JSpecSupport {
+
+    @After
+    public void after() {
+        RequestContext.clear();
+    }
+
+    @Test
+    public void shouldMoveRequestStateToAnotherThread() throws InterruptedException {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        RequestContext.setTLs(request, new MockHttpServletResponse(), null, new AppContext(), new RequestVo(), "json");
+
+        final RequestScope scope = RequestContext.detach();
+        a(RequestContext.getHttpRequest()).shouldBeNull();
+        a(RequestContext.getFormat()).shouldBeNull();
+
+        final AtomicReference<Object> seen = new AtomicReference<>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                RequestContext.attach(scope);
+                seen.set(RequestContext.getHttpRequest());
+                RequestContext.clear();
+            }
+        });
+        thread.start();
+        thread.join();
+        a(seen.get()).shouldBeTheSameAs(request);
+        a(scope.request).shouldBeNull();
+    }
+}
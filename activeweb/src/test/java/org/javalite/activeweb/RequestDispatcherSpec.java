@@ -20,6 +20,7 @@ import org.javalite.common.JsonHelper;
 import org.javalite.common.Util;
 import org.javalite.test.SystemStreamUtil;
 import org.javalite.test.XPathHelper;
+import org.javalite.test.jspec.ExceptionExpectation;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -114,6 +115,27 @@ public class RequestDispatcherSpec extends RequestSpec {
         a(fellThrough).shouldBeTrue();
     }
 
+    @Test
+    public void shouldRejectAccessLogParametersOutOfRange() {
+        config.addInitParameter("access_log", "async");
+        config.addInitParameter("access_log_buffer_size", "big");
+        expect(new ExceptionExpectation<InitException>(InitException.class) {
+            @Override
+            public void exec() throws Exception {
+                dispatcher.init(config);
+            }
+        });
+
+        config.addInitParameter("access_log_buffer_size", "16");
+        config.addInitParameter("access_log_sample_rate", "0");
+        expect(new ExceptionExpectation<InitException>(InitException.class) {
+            @Override
+            public void exec() throws Exception {
+                dispatcher.init(config);
+            }
+        });
+    }
+
     /**
      * If there is exception in the FilterChain below RequestDispatcher, it should not
      * attempt to do anything to it.
@@ -0,0 +1,67 @@
+package org.javalite.activeweb;
+
+import app.controllers.SharedGreetingController;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.management.MBeanServer;
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+/**
+ * @author Igor Polevoy
+ */
+public class RequestMetricsSpec extends RequestSpec {
+
+    @Before
+    public void before() {
+        RequestMetrics.reset();
+        RequestMetrics.setEnabled(true);
+    }
+
+    @After
+    public void after() {
+        RequestMetrics.setEnabled(false);
+    }
+
+    private void get(String path) throws IOException, ServletException {
+        request = new MockHttpServletRequest("GET", path);
+        request.setServletPath(path);
+        response = new MockHttpServletResponse();
+        dispatcher.doFilter(request, response, filterChain);
+    }
+
+    @Test
+    public void shouldRecordPhasesOfExistingActions() throws IOException, ServletException {
+        get("/shared_greeting");
+        get("/shared_greeting");
+        get("/shared_greeting/no_such_action");
+
+        ActionMetrics metrics = RequestMetrics.getActionMetrics().get(SharedGreetingController.class.getName() + "#index");
+        a(metrics.get(RequestPhase.TOTAL).getCount()).shouldBeEqual(2L);
+        a(metrics.get(RequestPhase.ACTION).getCount()).shouldBeEqual(2L);
+        a(metrics.get(RequestPhase.TOTAL).getMax() >= metrics.get(RequestPhase.ACTION).getMax()).shouldBeTrue();
+        a(RequestMetrics.getActionMetrics().containsKey(SharedGreetingController.class.getName() + "#no_such_action")).shouldBeFalse();
+    }
+
+    @Test
+    public void shouldNotRecordWhenDisabled() throws IOException, ServletException {
+        RequestMetrics.setEnabled(false);
+        get("/shared_greeting");
+        ActionMetrics metrics = RequestMetrics.getActionMetrics().get(SharedGreetingController.class.getName() + "#index");
+        a(metrics == null || metrics.get(RequestPhase.TOTAL).getCount() == 0).shouldBeTrue();
+    }
+
+    @Test
+    public void shouldExposeMetricsWithJmx() throws Exception {
+        get("/shared_greeting");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Object count = server.invoke(RequestMetrics.objectName(""), "getCount",
+                new Object[]{SharedGreetingController.class.getName() + "#index"}, new String[]{String.class.getName()});
+        a(count).shouldBeEqual(1L);
+    }
+}
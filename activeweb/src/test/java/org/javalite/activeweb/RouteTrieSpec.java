@@ -0,0 +1,81 @@
+package org.javalite.activeweb;
+
+import app.controllers.Route1Controller;
+import app.controllers.Route2Controller;
+import app.controllers.WildcardRouteController;
+import org.javalite.common.Util;
+import org.javalite.test.jspec.JSpecSupport;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.javalite.common.Collections.list;
+
+/**
+ * @author Igor Polevoy
+ */
+public class RouteTrieSpec implements JSpecSupport {
+
+    private List<RouteBuilder> candidates(RouteTrie trie, String uri, HttpMethod method) {
+        return trie.candidates(uri, Util.split(uri, '/'), method);
+    }
+
+    @Test
+    public void shouldReturnCandidatesInOrderOfDefinition() {
+        RouteBuilder segmentRoute = new RouteBuilder("/{controller}/{action}");
+        RouteBuilder staticRoute = new RouteBuilder("/greeting/hi").to(Route2Controller.class);
+        RouteBuilder idRoute = new RouteBuilder("/greeting/{id}").to(Route1Controller.class);
+        RouteTrie trie = new RouteTrie(list(segmentRoute, staticRoute, idRoute));
+
+        List<RouteBuilder> candidates = candidates(trie, "/greeting/hi", HttpMethod.GET);
+        a(candidates.size()).shouldBeEqual(3);
+        a(candidates.get(0)).shouldBeTheSameAs(segmentRoute);
+        a(candidates.get(1)).shouldBeTheSameAs(staticRoute);
+        a(candidates.get(2)).shouldBeTheSameAs(idRoute);
+
+        candidates = candidates(trie, "/greeting/bye", HttpMethod.GET);
+        a(candidates.size()).shouldBeEqual(2);
+        a(candidates.get(0)).shouldBeTheSameAs(segmentRoute);
+        a(candidates.get(1)).shouldBeTheSameAs(idRoute);
+    }
+
+    @Test
+    public void shouldNotReturnRoutesOfDifferentDepth() {
+        RouteTrie trie = new RouteTrie(list(new RouteBuilder("/greeting/{id}").to(Route1Controller.class)));
+        a(candidates(trie, "/greeting", HttpMethod.GET).size()).shouldBeEqual(0);
+        a(candidates(trie, "/greeting/1/2", HttpMethod.GET).size()).shouldBeEqual(0);
+        a(candidates(trie, "/", HttpMethod.GET).size()).shouldBeEqual(0);
+    }
+
+    @Test
+    public void shouldBucketRoutesByHttpMethod() {
+        RouteBuilder getRoute = new RouteBuilder("/greeting").to(Route1Controller.class);
+        RouteBuilder postRoute = new RouteBuilder("/greeting").to(Route2Controller.class).post().put();
+        RouteTrie trie = new RouteTrie(list(getRoute, postRoute));
+
+        a(candidates(trie, "/greeting", HttpMethod.GET).get(0)).shouldBeTheSameAs(getRoute);
+        a(candidates(trie, "/greeting", HttpMethod.POST).get(0)).shouldBeTheSameAs(postRoute);
+        a(candidates(trie, "/greeting", HttpMethod.PUT).get(0)).shouldBeTheSameAs(postRoute);
+        a(candidates(trie, "/greeting", HttpMethod.DELETE).size()).shouldBeEqual(0);
+    }
+
+    @Test
+    public void shouldMatchWildCardWithAtLeastOneSegment() {
+        RouteBuilder wildCard = new RouteBuilder("/greeting/*tail").to(WildcardRouteController.class);
+        RouteTrie trie = new RouteTrie(list(wildCard));
+
+        a(candidates(trie, "/greeting/1/2/3", HttpMethod.GET).get(0)).shouldBeTheSameAs(wildCard);
+        a(candidates(trie, "/greeting/1", HttpMethod.GET).get(0)).shouldBeTheSameAs(wildCard);
+        a(candidates(trie, "/greeting", HttpMethod.GET).size()).shouldBeEqual(0);
+        a(candidates(trie, "/hello/1", HttpMethod.GET).size()).shouldBeEqual(0);
+    }
+
+    @Test
+    public void shouldMatchRootRoute() {
+        RouteBuilder root = new RouteBuilder("/").to(Route1Controller.class);
+        RouteTrie trie = new RouteTrie(list(root));
+
+        a(candidates(trie, "/", HttpMethod.GET).get(0)).shouldBeTheSameAs(root);
+        a(candidates(trie, "/greeting", HttpMethod.GET).size()).shouldBeEqual(0);
+    }
+}
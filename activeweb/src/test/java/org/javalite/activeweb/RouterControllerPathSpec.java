@@ -83,6 +83,13 @@ public class RouterControllerPathSpec {
         a(path.get(Router.CONTROLLER_NAME)).shouldBeEqual("db");
     }
 
+    @Test
+    public void shouldNotMatchPackageToPartOfSegment() {
+        Map path = router.getControllerPath("/administrator/db");
+        a(path.get(Router.PACKAGE_SUFFIX)).shouldBeNull();
+        a(path.get(Router.CONTROLLER_NAME)).shouldBeEqual("administrator");
+    }
+
     @Test(expected = ControllerException.class)
     public void shouldFailNoControllerProvided() {
         router.getControllerPath("/admin/");//this should fail because "admin" package exists, and
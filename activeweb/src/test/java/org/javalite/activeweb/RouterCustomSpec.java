@@ -25,6 +25,8 @@ import org.junit.Test;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 
+import javax.servlet.ServletException;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.Map;
 
@@ -293,4 +295,69 @@ public class RouterCustomSpec extends RequestSpec {
         execDispatcher();
         a(responseContent()).shouldBeEqual("");
     }
+
+    @Test
+    public void shouldBuildRoutesOnceForAllRequests() throws IOException, ServletException {
+        final int[] initCount = {0};
+        routeConfig = new AbstractRouteConfig() {
+            public void init(AppContext appContext) {
+                initCount[0]++;
+                route("/greeting").to(Route2Controller.class).action("hi");
+            }
+        };
+        request.setServletPath("/greeting");
+        execDispatcher();
+        a(responseContent()).shouldContain("route 2");
+
+        for (int i = 0; i < 3; i++) {
+            request = new MockHttpServletRequest();
+            request.setServletPath("/greeting");
+            request.setMethod("GET");
+            response = new MockHttpServletResponse();
+            dispatcher.doFilter(request, response, filterChain);
+            a(responseContent()).shouldContain("route 2");
+        }
+        a(initCount[0]).shouldBeEqual(1);
+    }
+
+    @Test
+    public void shouldNotRememberControllerFromPreviousRequest() throws IOException, ServletException {
+        routeConfig = new AbstractRouteConfig() {
+            public void init(AppContext appContext) {
+                route("/{action}/{controller}/{id}");
+            }
+        };
+        request.setServletPath("/show/route_3/1");
+        execDispatcher();
+        a(responseContent()).shouldContain("route 3");
+
+        request = new MockHttpServletRequest();
+        request.setServletPath("/show/route_5/2");
+        request.setMethod("GET");
+        response = new MockHttpServletResponse();
+        dispatcher.doFilter(request, response, filterChain);
+        a(responseContent()).shouldContain("id:2");
+    }
+
+    @Test
+    public void shouldReturnCapturedValuesWithoutModifyingRoute() throws ClassLoadException {
+        RouteBuilder builder = new RouteBuilder("/{action}/{controller}/{id}/{user_name}");
+        RouteMatch first = builder.match("/show/route_3/1/alex", Util.split("/show/route_3/1/alex", '/'), HttpMethod.GET);
+        RouteMatch second = builder.match("/edit/route_4/2/bob", Util.split("/edit/route_4/2/bob", '/'), HttpMethod.GET);
+
+        a(first.getControllerClass()).shouldBeEqual(Route3Controller.class);
+        a(first.getActionName()).shouldBeEqual("show");
+        a(first.getId()).shouldBeEqual("1");
+        a(first.getUserSegments().get("user_name")).shouldBeEqual("alex");
+
+        a(second.getControllerClass()).shouldBeEqual(Route4Controller.class);
+        a(second.getActionName()).shouldBeEqual("edit");
+        a(second.getId()).shouldBeEqual("2");
+        a(second.getUserSegments().get("user_name")).shouldBeEqual("bob");
+
+        a(builder.getActionName()).shouldBeEqual("index");
+        a(builder.getId()).shouldBeNull();
+        a(builder.match("/show/route_3/1", Util.split("/show/route_3/1", '/'), HttpMethod.GET)).shouldBeNull();
+        a(builder.match("/show/route_3/1/alex", Util.split("/show/route_3/1/alex", '/'), HttpMethod.POST)).shouldBeNull();
+    }
 }
@@ -0,0 +1,48 @@
+package org.javalite.activeweb;
+
+import app.controllers.MutableSingletonController;
+import app.controllers.SharedGreetingController;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+
+/**
+ * @author Igor Polevoy
+ */
+public class SingletonControllerSpec extends RequestSpec {
+
+    private String get(String path, String name) throws IOException, ServletException {
+        request = new MockHttpServletRequest("GET", path);
+        request.setServletPath(path);
+        request.setParameter("name", name);
+        response = new MockHttpServletResponse();
+        dispatcher.doFilter(request, response, filterChain);
+        return response.getContentAsString();
+    }
+
+    @Test
+    public void shouldReuseSingletonControllerInstance() throws ClassLoadException, ReflectiveOperationException {
+        ControllerMetadata metadata = ControllerMetadata.of(SharedGreetingController.class);
+        AppController controller = metadata.getSingleton();
+        a(metadata.getSingleton()).shouldBeTheSameAs(controller);
+        a(metadata.isSingleton(controller)).shouldBeTrue();
+        a(metadata.isSingleton(new SharedGreetingController())).shouldBeFalse();
+        a(Configuration.getControllerRegistry().createController("shared_greeting", null)).shouldBeTheSameAs(controller);
+    }
+
+    @Test
+    public void shouldServeRequestsWithSingletonController() throws IOException, ServletException {
+        a(get("/shared_greeting", "Jim")).shouldBeEqual("hello Jim");
+        a(get("/shared_greeting", "Bob")).shouldBeEqual("hello Bob");
+    }
+
+    @Test
+    public void shouldRejectSingletonControllerWithMutableFields() throws IOException, ServletException {
+        get("/mutable_singleton", "Jim");
+        a(response.getContentAsString()).shouldContain("Controller " + MutableSingletonController.class.getName()
+                + " is annotated with @SingletonController and cannot have mutable instance field 'name'");
+    }
+}
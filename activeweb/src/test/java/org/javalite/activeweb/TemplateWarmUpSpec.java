@@ -0,0 +1,106 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package org.javalite.activeweb;
+
+import org.javalite.activeweb.freemarker.FreeMarkerTemplateManager;
+import org.javalite.test.jspec.JSpecSupport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.javalite.common.Collections.map;
+
+/**
+ * @author Igor Polevoy
+ */
+public class TemplateWarmUpSpec implements JSpecSupport {
+
+    private Path views;
+    private FreeMarkerTemplateManager manager;
+
+    @Before
+    public void before() throws IOException {
+        views = Files.createTempDirectory("views");
+        write("books/index.ftl", "books: ${name}");
+        write("layouts/default_layout.ftl", "<div>${page_content}</div>");
+        manager = new FreeMarkerTemplateManager();
+        manager.setTemplateLocation(views.toString());
+        manager.setWarmUpTemplates(true);
+        Configuration.setEnv("production");
+    }
+
+    @After
+    public void after() {
+        Configuration.setEnv("development");
+        delete(views.toFile());
+    }
+
+    @Test
+    public void shouldParseTemplatesAtStart() {
+        manager.warmUp();
+        long misses = manager.getTemplateCacheMisses();
+        a(misses >= 2).shouldBeTrue();
+
+        StringWriter writer = new StringWriter();
+        manager.merge(map("name", "Dune"), "/books/index", "/layouts/default_layout", null, writer);
+        a(writer.toString()).shouldBeEqual("<div>books: Dune</div>");
+        a(manager.getTemplateCacheMisses()).shouldBeEqual(misses);
+        a(manager.getTemplateCacheHits() >= 2).shouldBeTrue();
+    }
+
+    @Test
+    public void shouldFailOnSyntaxErrors() throws IOException {
+        write("books/broken.ftl", "<#if name>unclosed");
+        String message = null;
+        try {
+            manager.warmUp();
+        } catch (InitException e) {
+            message = e.getMessage();
+        }
+        the(message).shouldContain("/books/broken.ftl");
+        the(message).shouldNotContain("/books/index.ftl");
+    }
+
+    @Test
+    public void shouldNotParseTemplatesInDevelopment() {
+        Configuration.setEnv("development");
+        manager.warmUp();
+        a(manager.getTemplateCacheMisses()).shouldBeEqual(0);
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                delete(f);
+            }
+        }
+        file.delete();
+    }
+
+    private void write(String name, String content) throws IOException {
+        File file = new File(views.toFile(), name);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes("UTF-8"));
+    }
+}
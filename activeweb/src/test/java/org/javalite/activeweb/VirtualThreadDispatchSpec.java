@@ -0,0 +1,50 @@
+package org.javalite.activeweb;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Virtual threads are not available on every JDK, so these specs use a regular executor in their place.
+ *
+ * @author Igor Polevoy
+ */
+public class VirtualThreadDispatchSpec extends RequestSpec {
+
+    @Test
+    public void shouldRunControllerOnExecutorThread() throws IOException, ServletException, InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        dispatcher.setExecutor(executor);
+
+        request = new MockHttpServletRequest("GET", "/shared_greeting");
+        request.setServletPath("/shared_greeting");
+        request.setParameter("name", "Jim");
+        request.setAsyncSupported(true);
+        dispatcher.doFilter(request, response, filterChain);
+        a(request.isAsyncStarted()).shouldBeTrue();
+
+        executor.shutdown();
+        a(executor.awaitTermination(10, TimeUnit.SECONDS)).shouldBeTrue();
+        a(response.getContentAsString()).shouldBeEqual("hello Jim");
+        a(RequestContext.getHttpRequest()).shouldBeNull();
+    }
+
+    @Test
+    public void shouldRunControllerOnContainerThreadIfAsyncIsNotSupported() throws IOException, ServletException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        dispatcher.setExecutor(executor);
+        executor.shutdown(); // would reject a task
+
+        request = new MockHttpServletRequest("GET", "/shared_greeting");
+        request.setServletPath("/shared_greeting");
+        request.setParameter("name", "Bob");
+        dispatcher.doFilter(request, response, filterChain);
+        a(request.isAsyncStarted()).shouldBeFalse();
+        a(response.getContentAsString()).shouldBeEqual("hello Bob");
+    }
+}
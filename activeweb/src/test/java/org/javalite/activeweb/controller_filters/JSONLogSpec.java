@@ -53,7 +53,7 @@ public class JSONLogSpec extends RequestSpec {
 
         Map log1 = JsonHelper.toMap(logs[1]);
         the(log1.get("level")).shouldBeEqual("INFO");
-        the(log1.get("logger")).shouldBeEqual("org.javalite.activeweb.RequestDispatcher");
+        the(log1.get("logger")).shouldBeEqual("org.javalite.activeweb.AccessLog");
 
         message = (Map) log1.get("message");
         the(message.get("controller")).shouldBeEqual("app.controllers.LoggingController");
@@ -88,7 +88,7 @@ public class JSONLogSpec extends RequestSpec {
         Map log1 = JsonHelper.toMap(logs[1]);
         the(log1.get("level")).shouldBeEqual("ERROR");
         the(log1.get("timestamp")).shouldNotBeNull();
-        the(log1.get("logger")).shouldBeEqual("org.javalite.activeweb.RequestDispatcher");
+        the(log1.get("logger")).shouldBeEqual("org.javalite.activeweb.AccessLog");
         message = (Map) log1.get("message");
         the(message.get("controller")).shouldBeEqual("app.controllers.LoggingController");
         the(message.get("duration_millis")).shouldNotBeNull();
@@ -131,7 +131,7 @@ public class JSONLogSpec extends RequestSpec {
         Map log1 = JsonHelper.toMap(logs[1]);
         the(log1.get("level")).shouldBeEqual("INFO");
         the(log1.get("timestamp")).shouldNotBeNull();
-        the(log1.get("logger")).shouldBeEqual("org.javalite.activeweb.RequestDispatcher");
+        the(log1.get("logger")).shouldBeEqual("org.javalite.activeweb.AccessLog");
         message = (Map) log1.get("message");
         the(message.get("controller")).shouldBeEqual("app.controllers.LoggingController");
         the(message.get("action")).shouldBeEqual("notfound");
@@ -162,7 +162,7 @@ public class JSONLogSpec extends RequestSpec {
         Map log1 = JsonHelper.toMap(logs[0]);
         the(log1.get("level")).shouldBeEqual("INFO");
         the(log1.get("timestamp")).shouldNotBeNull();
-        the(log1.get("logger")).shouldBeEqual("org.javalite.activeweb.RequestDispatcher");
+        the(log1.get("logger")).shouldBeEqual("org.javalite.activeweb.AccessLog");
         Map message = (Map) log1.get("message");
         the(message.get("controller")).shouldBeEqual("");
         the(message.get("action")).shouldBeEqual("");
@@ -214,7 +214,7 @@ public class JSONLogSpec extends RequestSpec {
         Map log2 = JsonHelper.toMap(logs[2]);
         the(log2.get("level")).shouldBeEqual("INFO");
         the(log2.get("timestamp")).shouldNotBeNull();
-        the(log2.get("logger")).shouldBeEqual("org.javalite.activeweb.RequestDispatcher");
+        the(log2.get("logger")).shouldBeEqual("org.javalite.activeweb.AccessLog");
         message = (Map) log2.get("message");
 
         the(message.get("controller")).shouldBeEqual("app.controllers.LoggingController");
@@ -235,7 +235,7 @@ public class JSONLogSpec extends RequestSpec {
 
         Map log0 = JsonHelper.toMap(logs[1]);
         the(log0.get("level")).shouldBeEqual("INFO");
-        the(log0.get("logger")).shouldBeEqual("org.javalite.activeweb.RequestDispatcher");
+        the(log0.get("logger")).shouldBeEqual("org.javalite.activeweb.AccessLog");
 
         Map message = (Map) log0.get("message");
         the(message.get("controller")).shouldBeEqual("app.controllers.LoggingController");
@@ -0,0 +1,127 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package org.javalite.activeweb.freemarker;
+
+import org.javalite.activeweb.ViewException;
+import org.javalite.test.jspec.JSpecSupport;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.javalite.common.Collections.map;
+
+/**
+ * @author Igor Polevoy
+ */
+public class FragmentCacheSpec implements JSpecSupport {
+
+    private static final Map<String, List<String>> NO_CONTENT = Collections.emptyMap();
+
+    private FreeMarkerTemplateManager manager = new FreeMarkerTemplateManager();
+
+    @Before
+    public void before() {
+        manager.setTemplateLocation("src/test/views");
+    }
+
+    @Test
+    public void shouldRenderBodyOnceForEachValueOfVaryVariables() {
+        a(render("/cache/card", null, "Jim", 1)).shouldBeEqual("card Jim 1");
+        a(render("/cache/card", null, "Jim", 2)).shouldBeEqual("card Jim 1");
+        a(render("/cache/card", null, "Bob", 3)).shouldBeEqual("card Bob 3");
+        a(manager.getFragmentCacheHits()).shouldBeEqual(1);
+        a(manager.getFragmentCacheMisses()).shouldBeEqual(2);
+    }
+
+    @Test
+    public void shouldNotMixUpValuesOfVaryVariables() {
+        a(render("/cache/pair", map("first", "a|b", "second", "c", "count", 1))).shouldBeEqual("a|b c 1");
+        a(render("/cache/pair", map("first", "a", "second", "b|c", "count", 2))).shouldBeEqual("a b|c 2");
+        a(manager.getFragmentCacheMisses()).shouldBeEqual(2);
+    }
+
+    @Test
+    public void shouldRejectTtlWhichIsNotNumberOfSeconds() {
+        ViewException failure = null;
+        try {
+            render("/cache/bad_ttl", map("count", 1));
+        } catch (ViewException e) {
+            failure = e;
+        }
+        the(failure).shouldNotBeNull();
+        the(failure.getMessage()).shouldContain("parameter: 'ttl' must be a number of seconds");
+    }
+
+    @Test
+    public void shouldRenderBodyAgainAfterPurge() {
+        render("/cache/card", null, "Jim", 1);
+        manager.purgeFragments("card");
+        a(render("/cache/card", null, "Jim", 2)).shouldBeEqual("card Jim 2");
+        manager.purgeFragments("other");
+        a(render("/cache/card", null, "Jim", 3)).shouldBeEqual("card Jim 2");
+    }
+
+    @Test
+    public void shouldKeepContentForLayout() {
+        render("/cache/card", "/layouts/default_layout_with_yeld", "Jim", 1);
+        String cached = render("/cache/card", "/layouts/default_layout_with_yeld", "Jim", 2);
+        a(manager.getFragmentCacheHits()).shouldBeEqual(1);
+        a(cached).shouldContain("<title>title of Jim</title>");
+        a(cached).shouldContain("card Jim 1");
+    }
+
+    @Test
+    public void shouldRemoveLeastRecentlyUsedFragmentsWhenOutOfSpace() {
+        FragmentCache cache = new FragmentCache(20);
+        cache.put("a", "aaaa", NO_CONTENT, 60000);
+        cache.put("b", "bbbb", NO_CONTENT, 60000);
+        cache.get("a");
+        cache.put("c", "cccc", NO_CONTENT, 60000);
+        a(cache.getBytes()).shouldBeEqual(16);
+        a(cache.get("a")).shouldNotBeNull();
+        a(cache.get("b")).shouldBeNull();
+        a(cache.get("c")).shouldNotBeNull();
+
+        cache.put("d", "more than twenty bytes", NO_CONTENT, 60000);
+        a(cache.get("d")).shouldBeNull();
+        a(cache.getBytes()).shouldBeEqual(16);
+    }
+
+    @Test
+    public void shouldExpireFragments() {
+        FragmentCache cache = new FragmentCache(1000);
+        cache.put("a", "aaaa", NO_CONTENT, -1);
+        a(cache.get("a")).shouldBeNull();
+        a(cache.getBytes()).shouldBeEqual(0);
+    }
+
+    private String render(String template, String layout, String name, int count) {
+        StringWriter sw = new StringWriter();
+        manager.merge(map("name", name, "count", count), template, layout, null, sw);
+        return sw.toString();
+    }
+
+    private String render(String template, Map<String, Object> values) {
+        StringWriter sw = new StringWriter();
+        manager.merge(values, template, sw);
+        return sw.toString();
+    }
+}
@@ -16,6 +16,8 @@ limitations under the License.
 
 package org.javalite.activeweb.freemarker;
 
+import org.javalite.activeweb.ViewException;
+import org.javalite.activeweb.freemarker.tags.BoxTag;
 import org.javalite.activeweb.freemarker.tags.Greeting2Tag;
 import org.javalite.activeweb.freemarker.tags.GreetingTag;
 import org.javalite.activeweb.freemarker.tags.HelloTag;
@@ -42,6 +44,7 @@ public class FreeMarkerTagSpec implements JSpecSupport {
         manager.registerTag("greeting", new GreetingTag());
         manager.registerTag("greeting2", new Greeting2Tag());
         manager.registerTag("hello", new HelloTag());
+        manager.registerTag("box", new BoxTag());
     }
 
 
@@ -58,4 +61,26 @@ public class FreeMarkerTagSpec implements JSpecSupport {
         manager.merge(map("name", "Earthlings!!"), "/greeting/index1", sw);
         a(sw.toString()).shouldBeEqual("<greeting> this is just a greeting: Hello, Earthlings!! </greeting>");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldWriteBodyDirectlyToOutput() {
+        StringWriter sw = new StringWriter();
+        manager.merge(map("name", "Earthlings!!"), "/box/index", sw);
+        a(sw.toString()).shouldBeEqual("<box>Hello, Earthlings!!</box><box>empty</box>");
+    }
+
+    @Test
+    public void shouldReportFailureOfBodyRatherThanOfTag() {
+        StringWriter sw = new StringWriter();
+        Exception failure = null;
+        try {
+            manager.merge(map(), "/box/failing", sw);
+        } catch (ViewException e) {
+            failure = e;
+        }
+        the(failure).shouldNotBeNull();
+        the(failure.getCause()).shouldBeA(freemarker.core.InvalidReferenceException.class);
+        //text of the body before the failure is already written
+        the(sw.toString()).shouldBeEqual("<box>before ");
+    }
+}
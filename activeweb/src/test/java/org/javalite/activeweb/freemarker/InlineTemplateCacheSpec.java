@@ -0,0 +1,110 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package org.javalite.activeweb.freemarker;
+
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import org.javalite.activeweb.freemarker.tags.GreetingTag;
+import org.javalite.activeweb.freemarker.tags.HelloTag;
+import org.javalite.test.jspec.JSpecSupport;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Map;
+
+import static org.javalite.common.Collections.map;
+
+/**
+ * @author Igor Polevoy
+ */
+public class InlineTemplateCacheSpec implements JSpecSupport {
+
+    private Configuration config = new Configuration();
+
+    @Test
+    public void shouldParseTextOnce() throws IOException {
+        InlineTemplateCache cache = new InlineTemplateCache(10);
+        Template first = cache.get("Hello, ${name}", "Hello, ${name}", config);
+        Template second = cache.get("Hello, ${name}", "Hello, ${name}", config);
+        a(second).shouldBeTheSameAs(first);
+        a(cache.getMisses()).shouldBeEqual(1);
+        a(cache.getHits()).shouldBeEqual(1);
+    }
+
+    @Test
+    public void shouldRemoveLeastRecentlyUsedTemplates() throws IOException {
+        InlineTemplateCache cache = new InlineTemplateCache(2);
+        Template a = cache.get("a", "A", config);
+        cache.get("b", "B", config);
+        cache.get("a", "A", config);
+        cache.get("c", "C", config);
+        a(cache.size()).shouldBeEqual(2);
+        a(cache.get("a", "A", config)).shouldBeTheSameAs(a);
+        cache.get("b", "B", config);
+        a(cache.getMisses()).shouldBeEqual(4);
+    }
+
+    @Test
+    public void shouldKeepNothingWhenSizeIsZero() throws IOException {
+        InlineTemplateCache cache = new InlineTemplateCache(0);
+        cache.get("a", "A", config);
+        cache.get("a", "A", config);
+        a(cache.size()).shouldBeEqual(0);
+        a(cache.getMisses()).shouldBeEqual(2);
+    }
+
+    @Test
+    public void shouldNotParseBodyOfTagOnEveryCall() {
+        FreeMarkerTemplateManager manager = new FreeMarkerTemplateManager();
+        manager.setTemplateLocation("src/test/views");
+        manager.registerTag("greeting", new GreetingTag());
+        manager.registerTag("hello", new HelloTag());
+        for (int i = 0; i < 3; i++) {
+            StringWriter sw = new StringWriter();
+            manager.merge(map("name", "earthlings!!"), "/greeting/index", sw);
+            a(sw.toString()).shouldBeEqual("<greeting> this is just a greeting: Hello, earthlings!! </greeting>");
+        }
+        a(manager.getInlineTemplateCacheMisses()).shouldBeEqual(2);
+        a(manager.getInlineTemplateCacheHits()).shouldBeEqual(4);
+    }
+
+    @Test
+    public void shouldNotShareKeysOfDifferentTags() {
+        FreeMarkerTemplateManager manager = new FreeMarkerTemplateManager();
+        manager.setTemplateLocation("src/test/views");
+        manager.registerTag("first", new KeyedTag("first"));
+        manager.registerTag("second", new KeyedTag("second") {});
+        StringWriter sw = new StringWriter();
+        manager.merge(map("name", "tag"), "/keyed/index", sw);
+        a(sw.toString()).shouldBeEqual("first tag second tag");
+    }
+
+    private static class KeyedTag extends FreeMarkerTag {
+        private final String text;
+
+        KeyedTag(String text) {
+            this.text = text;
+        }
+
+        @Override
+        protected void render(Map params, String body, Writer writer) throws Exception {
+            process("label", text + " ${name}", map("name", "tag"), writer);
+        }
+    }
+}
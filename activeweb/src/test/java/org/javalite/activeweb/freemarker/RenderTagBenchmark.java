@@ -0,0 +1,89 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package org.javalite.activeweb.freemarker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.javalite.common.Collections.map;
+
+/**
+ * Measures rendering of a partial over a large collection, on a page with many variables. Not a test,
+ * it is executed manually:
+ *
+ * <pre>
+ *     mvn test-compile exec:java -Dexec.mainClass="org.javalite.activeweb.freemarker.RenderTagBenchmark" -Dexec.classpathScope=test
+ * </pre>
+ */
+public class RenderTagBenchmark {
+
+    private static final int ROWS = 1000;
+    private static final int VARIABLES = 100;
+    private static final int WARMUP_PAGES = 200;
+    private static final int PAGES = 1000;
+
+    public static void main(String[] args) throws IOException {
+        File views = Files.createTempDirectory("views").toFile();
+        new File(views, "books").mkdirs();
+        Files.write(new File(views, "books/index.ftl").toPath(), "<@render partial=\"book\" collection=books/>".getBytes("UTF-8"));
+        Files.write(new File(views, "books/_book.ftl").toPath(), "${book_counter}: ${book.title}<#if last>.</#if>\n".getBytes("UTF-8"));
+
+        FreeMarkerTemplateManager manager = new FreeMarkerTemplateManager();
+        manager.setTemplateLocation(views.getPath());
+
+        Map<String, Object> values = new HashMap<>();
+        for (int i = 0; i < VARIABLES; i++) {
+            values.put("variable" + i, "value" + i);
+        }
+        List<Map<String, Object>> books = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            books.add(map("title", "Book " + i));
+        }
+        values.put("books", books);
+
+        render(manager, values, WARMUP_PAGES);
+        long nanos = render(manager, values, PAGES);
+        System.out.println(String.format("%,d pages of %,d partials in %,d ms, %,.1f ns/partial", PAGES, ROWS,
+                nanos / 1000000, nanos / (double) PAGES / ROWS));
+
+        for (File file : new File(views, "books").listFiles()) {
+            file.delete();
+        }
+        new File(views, "books").delete();
+        views.delete();
+    }
+
+    private static long render(FreeMarkerTemplateManager manager, Map<String, Object> values, int pages) {
+        long start = System.nanoTime();
+        long length = 0;
+        for (int i = 0; i < pages; i++) {
+            StringWriter writer = new StringWriter();
+            manager.merge(values, "/books/index", null, null, writer);
+            length += writer.getBuffer().length();
+        }
+        if (length == 0) {
+            throw new IllegalStateException();
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -64,6 +64,13 @@ public class RenderTagSpec implements JSpecSupport {
     }
 
 
+    @Test
+    public void shouldLayerCollectionItemOverTagParametersOverPageVariables() {
+        StringWriter sw = new StringWriter();
+        manager.merge(map("fruits", list("apple", "banana"), "title", "from page"), "/partial/main_with_layered_variables", sw);
+        a(sw.toString()).shouldBeEqual("apple:from tag:red;banana:from tag:red.");
+    }
+
     @Test(expected = ViewException.class)
     public void shouldRejectIncorrectlyNamedSharedPartial() throws IOException, TemplateException {
 
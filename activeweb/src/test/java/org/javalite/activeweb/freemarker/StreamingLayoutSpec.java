@@ -0,0 +1,101 @@
+/*
+Copyright 2009-2016 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package org.javalite.activeweb.freemarker;
+
+import org.javalite.activeweb.ViewException;
+import org.javalite.test.XPathHelper;
+import org.javalite.test.jspec.JSpecSupport;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.javalite.common.Collections.map;
+
+/**
+ * @author Igor Polevoy
+ */
+public class StreamingLayoutSpec implements JSpecSupport {
+
+    private FreeMarkerTemplateManager manager = new FreeMarkerTemplateManager();
+
+    @Before
+    public void before() {
+        manager.setTemplateLocation("src/test/views");
+        manager.setStreamingLayouts(true);
+    }
+
+    @Test
+    public void shouldRenderTemplateInLayout() {
+        manager.setDefaultLayout("/layouts/default_layout");
+        StringWriter sw = new StringWriter();
+        manager.merge(map("name", "Jim"), "/abc_controller/test_template", sw);
+        String generated = sw.toString();
+
+        a(XPathHelper.selectText("//body/div[1]", generated)).shouldEqual("this is a header");
+        a(XPathHelper.selectText("//body/div[2]", generated)).shouldEqual("name is: Jim");
+        a(XPathHelper.selectText("//body/div[3]", generated)).shouldEqual("this is a footer");
+    }
+
+    @Test
+    public void shouldRenderPageWhenLayoutYieldsContent() {
+        manager.setDefaultLayout("/layouts/default_layout_with_yeld");
+        StringWriter sw = new StringWriter();
+        manager.merge(map("name", "Jim"), "/abc_controller/contains_content_for", sw);
+        String generated = sw.toString();
+
+        a(XPathHelper.selectText("//title", generated)).shouldEqual("sample content");
+        a(XPathHelper.selectText("//div[@id='content']", generated).trim()).shouldEqual("name is: Jim");
+    }
+
+    @Test
+    public void shouldJoinChunksOfContentForSameName() {
+        manager.setDefaultLayout("/layouts/default_layout_with_yeld_js");
+        StringWriter sw = new StringWriter();
+        manager.merge(map("name", "Jim"), "/abc_controller/multiple_content_for", sw);
+        a(XPathHelper.count("//script", sw.toString())).shouldEqual(3);
+    }
+
+    @Test
+    public void shouldExposeContentAndValuesAsVariables() {
+        StringWriter sw = new StringWriter();
+        manager.merge(map("name", "Jim"), "/abc_controller/contains_content_for", "/layouts/streaming_layout", null, sw);
+        String generated = sw.toString();
+
+        a(XPathHelper.selectText("//title", generated)).shouldEqual("sample content");
+        a(XPathHelper.selectText("//div[@id='header']", generated)).shouldEqual("Jim");
+        a(XPathHelper.selectText("//div[@id='content']", generated).trim()).shouldEqual("name is: Jim");
+    }
+
+    @Test
+    public void shouldWriteLayoutBeforePageIsRendered() {
+        StringWriter sw = new StringWriter();
+        Map<String, Object> values = new HashMap<>();
+        Exception failure = null;
+        try {
+            manager.merge(values, "/abc_controller/failing_page", "/layouts/header_first_layout", null, sw);
+        } catch (ViewException e) {
+            failure = e;
+        }
+        the(failure).shouldNotBeNull();
+        the(failure.getMessage()).shouldContain("Failed to render template: '/abc_controller/failing_page.ftl'");
+        //layout stopped at page_content
+        the(sw.toString().trim()).shouldBeEqual("<div id=\"header\">this is a header</div>\n<div id=\"content\">");
+    }
+}
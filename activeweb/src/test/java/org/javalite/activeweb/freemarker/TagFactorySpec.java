@@ -20,6 +20,7 @@ import org.javalite.test.jspec.JSpecSupport;
 import org.javalite.activeweb.freemarker.TagFactory;
 import org.junit.Test;
 
+import java.io.IOException;
 import java.io.StringWriter;
 
 import static org.javalite.common.Collections.*;
@@ -39,4 +40,34 @@ public class TagFactorySpec implements JSpecSupport{
         System.out.println(sw);
         a(sw.toString()).shouldBeEqual("<img src=\"images/button.png\" alt=\"click this image\"/>");
     }
+
+    @Test
+    public void shouldWriteStartAndEndTagsSeparately() throws IOException {
+        TagFactory tf =  new TagFactory("form", "<input/>");
+        tf.attribute("action", "/books");
+        tf.textAttributes("data-id='1'");
+        StringWriter sw = new StringWriter();
+        tf.writeStartTag(sw);
+        sw.write("content");
+        tf.writeEndTag(sw);
+        a(sw.toString()).shouldBeEqual("<form action=\"/books\" data-id='1'><input/>content</form>");
+        a(tf.toString()).shouldBeEqual("<form action=\"/books\" data-id='1'><input/></form>");
+    }
+
+    @Test
+    public void shouldWriteElementsLargerThanPooledBuffer() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            text.append('x');
+        }
+        TagFactory large = new TagFactory("div", null);
+        large.textAttributes("data-text='" + text + "'");
+        StringWriter sw = new StringWriter();
+        large.writeStartTag(sw);
+        a(sw.toString()).shouldBeEqual("<div data-text='" + text + "'>");
+
+        sw = new StringWriter();
+        new TagFactory("br", "").write(sw);
+        a(sw.toString()).shouldBeEqual("<br/>");
+    }
 }
@@ -0,0 +1 @@
+<#assign x = 1/0>
@@ -0,0 +1 @@
+<@box>before ${missing}</@box>
\ No newline at end of file
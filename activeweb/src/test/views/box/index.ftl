@@ -0,0 +1 @@
+<@box><@hello>Hello, ${name}</@hello></@box><@box/>
\ No newline at end of file
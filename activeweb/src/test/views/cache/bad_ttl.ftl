@@ -0,0 +1 @@
+<@cache key="card" ttl="soon">card</@cache>
\ No newline at end of file
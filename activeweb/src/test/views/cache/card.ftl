@@ -0,0 +1 @@
+<@cache key="card" vary="name"><@content for="title">title of ${name}</@content>card ${name} ${count}</@cache>
\ No newline at end of file
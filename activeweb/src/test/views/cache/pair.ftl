@@ -0,0 +1 @@
+<@cache key="pair" vary="first,second">${first} ${second} ${count}</@cache>
\ No newline at end of file
@@ -0,0 +1 @@
+name is: ${name}
\ No newline at end of file
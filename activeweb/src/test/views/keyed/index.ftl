@@ -0,0 +1 @@
+<@first/> <@second/>
\ No newline at end of file
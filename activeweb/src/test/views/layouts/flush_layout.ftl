@@ -0,0 +1,7 @@
+<html>
+<head><title>flushed</title></head>
+<@flush/>
+<body>
+<div id="content">${page_content}</div>
+</body>
+</html>
@@ -0,0 +1,2 @@
+<div id="header">this is a header</div>
+<div id="content">${page_content}</div>
@@ -0,0 +1,9 @@
+<html>
+<head>
+    <title>${title}</title>
+</head>
+<body>
+<div id="header">${name}</div>
+<div id="content">${page_content}</div>
+</body>
+</html>
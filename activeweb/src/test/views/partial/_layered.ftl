@@ -0,0 +1 @@
+${layered}:${title}:${color}<#if last>.<#else>;</#if>
\ No newline at end of file
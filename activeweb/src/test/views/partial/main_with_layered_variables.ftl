@@ -0,0 +1 @@
+<#assign color="red"><@render partial="layered" collection=fruits title="from tag"/>
\ No newline at end of file
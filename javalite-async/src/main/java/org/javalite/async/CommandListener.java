@@ -17,7 +17,6 @@ limitations under the License.
 package org.javalite.async;
 
 import com.google.inject.Injector;
-import org.javalite.common.JsonHelper;
 import org.javalite.logging.Context;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,8 +24,6 @@ import org.slf4j.LoggerFactory;
 import javax.jms.*;
 import java.io.IOException;
 
-import static org.javalite.common.Collections.map;
-
 /**
  * @author Igor Polevoy on 4/5/15.
  */
@@ -47,7 +44,11 @@ public class CommandListener implements MessageListener {
             }
             long start = System.currentTimeMillis();
             onCommand(command);
-            LOGGER.info(JsonHelper.toJsonString(map("processed_millis", (System.currentTimeMillis() - start), "command", command.getClass().getSimpleName())));
+            if (LOGGER.isInfoEnabled()) {
+                //class names do not need escaping
+                LOGGER.info("{\"processed_millis\":" + (System.currentTimeMillis() - start) + ",\"command\":\""
+                        + command.getClass().getSimpleName() + "\"}");
+            }
         } catch (Exception e) {
             LOGGER.error("Failed to process message: {}", getCommandAsText(message), e);
             throw new AsyncException("Failed to process message", e);